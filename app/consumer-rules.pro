@@ -0,0 +1,5 @@
+# JSONBean实体按类名查找生成的适配器（实体类名_JSONAdapter）
+-keepnames @androidx.api.JSONBean class *
+-keep class * implements androidx.api.JSONAdapter {
+    <init>();
+}
@@ -35,6 +35,14 @@ public interface Api {
      * 网络路径
      */
     String DOMAIN = "Cross-Domain";
+    /**
+     * 过期可用窗口（秒），过期时间在窗口内时先返回过期缓存并后台刷新，由{@link CacheInterceptor}移除不发送到服务器
+     */
+    String STALE_WHILE_REVALIDATE = "Stale-While-Revalidate";
+    /**
+     * 流式响应标记，{@link LogInterceptor}不读取响应内容，由{@link CacheInterceptor}移除不发送到服务器
+     */
+    String STREAM = "OkApi-Stream";
     /**
      * json
      */
@@ -0,0 +1,592 @@
+package androidx.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+
+/**
+ * 异步请求结果<br/>
+ * 由{@link OkApi#future(android.content.Context, int, String, RequestParams)}返回，在请求线程读取响应后完成，<br/>
+ * 完成监听（{@link #whenComplete(Listener)}）在完成的线程执行，链式处理不经过主线程，需要更新界面时使用{@link #whenComplete(Delivery, Listener)}；<br/>
+ * 取消（{@link #cancel(boolean)}）、超时（{@link #deadline(long)}）会取消对应的网络请求，组合结果（{@link #allOf(List)}、{@link #anyOf(List)}）取消时取消所有来源。
+ *
+ * @param <T> 结果类型
+ */
+public class ApiFuture<T> implements Future<T> {
+
+    public final static String TAG = ApiFuture.class.getSimpleName();
+
+    /**
+     * 完成监听
+     *
+     * @param <T> 结果类型
+     */
+    public interface Listener<T> {
+
+        /**
+         * 完成（成功、失败或取消）
+         *
+         * @param future 结果
+         */
+        void onComplete(ApiFuture<T> future);
+
+    }
+
+    /**
+     * 结果转换
+     *
+     * @param <A> 输入类型
+     * @param <B> 输出类型
+     */
+    public interface Function<A, B> {
+
+        /**
+         * 转换，抛出异常时转换后的结果失败
+         *
+         * @param value 输入
+         * @return 输出
+         * @throws Exception
+         */
+        B apply(A value) throws Exception;
+
+    }
+
+    /**
+     * 超时调度
+     */
+    private static ScheduledExecutorService scheduler;
+
+    /**
+     * 结果
+     */
+    private T result;
+    /**
+     * 异常
+     */
+    private Exception exception;
+    /**
+     * 是否已完成
+     */
+    private boolean done;
+    /**
+     * 是否已取消
+     */
+    private boolean cancelled;
+    /**
+     * 完成监听
+     */
+    private final List<Listener<T>> listeners = new ArrayList<>();
+    /**
+     * 网络请求
+     */
+    private Call call;
+    /**
+     * 来源，取消时一起取消
+     */
+    private final List<Future<?>> sources = new ArrayList<>();
+    /**
+     * 超时任务
+     */
+    private ScheduledFuture<?> timer;
+
+    public ApiFuture() {
+
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param call 网络请求，取消、超时时取消
+     */
+    public ApiFuture(Call call) {
+        this.call = call;
+    }
+
+    /**
+     * @return 超时调度线程，同步请求超时共用
+     */
+    static synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "OkApi Deadline");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * 添加来源，取消时一起取消
+     *
+     * @param source 来源
+     */
+    private void source(Future<?> source) {
+        boolean cancel;
+        synchronized (this) {
+            cancel = cancelled;
+            if (!cancel) {
+                sources.add(source);
+            }
+        }
+        if (cancel) {
+            source.cancel(true);
+        }
+    }
+
+    /**
+     * 成功完成
+     *
+     * @param result 结果
+     * @return 是否由本次调用完成
+     */
+    public boolean complete(T result) {
+        return finish(result, null, false);
+    }
+
+    /**
+     * 失败完成
+     *
+     * @param exception 异常
+     * @return 是否由本次调用完成
+     */
+    public boolean fail(Exception exception) {
+        return finish(null, exception, false);
+    }
+
+    private boolean finish(T result, Exception exception, boolean cancelled) {
+        List<Listener<T>> completed;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.done = true;
+            this.result = result;
+            this.exception = exception;
+            this.cancelled = cancelled;
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            completed = new ArrayList<>(listeners);
+            listeners.clear();
+            notifyAll();
+        }
+        for (Listener<T> listener : completed) {
+            notifyListener(listener);
+        }
+        return true;
+    }
+
+    private void notifyListener(Listener<T> listener) {
+        try {
+            listener.onComplete(this);
+        } catch (RuntimeException e) {
+            ApiLog.i(TAG, "listener error: " + e);
+        }
+    }
+
+    /**
+     * 取消来源和网络请求
+     */
+    private void cancelSources() {
+        Call call;
+        List<Future<?>> sources;
+        synchronized (this) {
+            call = this.call;
+            sources = new ArrayList<>(this.sources);
+        }
+        if (call != null) {
+            call.cancel();
+            //主机排队中的请求不会被调度器回调，立即回调失败
+            Configure.Config().hostDispatcher().purge();
+        }
+        for (Future<?> source : sources) {
+            source.cancel(true);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!finish(null, new CancellationException("Canceled"), true)) {
+            return false;
+        }
+        cancelSources();
+        return true;
+    }
+
+    /**
+     * 设置超时，超过时间未完成时以{@link TimeoutException}失败并取消网络请求，重复设置时以最后一次为准
+     *
+     * @param millis 时间 - 单位毫秒，从调用时开始计算
+     * @return
+     */
+    public ApiFuture<T> deadline(final long millis) {
+        ScheduledFuture<?> task = scheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (fail(new TimeoutException("Deadline exceeded: " + millis + "ms"))) {
+                    cancelSources();
+                }
+            }
+        }, millis, TimeUnit.MILLISECONDS);
+        synchronized (this) {
+            if (done) {
+                task.cancel(false);
+                return this;
+            }
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            timer = task;
+        }
+        return this;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return 是否成功完成
+     */
+    public synchronized boolean isSuccessful() {
+        return done && exception == null;
+    }
+
+    /**
+     * @return 结果，未完成或失败时为空
+     */
+    public synchronized T result() {
+        return result;
+    }
+
+    /**
+     * @return 异常，未完成或成功时为空
+     */
+    public synchronized Exception exception() {
+        return exception;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return report();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long end = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            long remaining = end - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return report();
+    }
+
+    private T report() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException("Canceled");
+        }
+        if (exception != null) {
+            throw new ExecutionException(exception);
+        }
+        return result;
+    }
+
+    /**
+     * 添加完成监听，在完成的线程执行，已完成时在当前线程立即执行
+     *
+     * @param listener 监听
+     * @return
+     */
+    public ApiFuture<T> whenComplete(Listener<T> listener) {
+        synchronized (this) {
+            if (!done) {
+                listeners.add(listener);
+                return this;
+            }
+        }
+        notifyListener(listener);
+        return this;
+    }
+
+    /**
+     * 添加完成监听，按投递策略执行，例如{@link Delivery#main()}在主线程更新界面
+     *
+     * @param delivery 投递策略
+     * @param listener 监听
+     * @return
+     */
+    public ApiFuture<T> whenComplete(final Delivery delivery, final Listener<T> listener) {
+        return whenComplete(new Listener<T>() {
+            @Override
+            public void onComplete(final ApiFuture<T> future) {
+                delivery.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onComplete(future);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 成功后转换结果，失败、取消时直接传递
+     *
+     * @param function 转换
+     * @param <R>      转换后类型
+     * @return 转换后的结果，取消时取消当前结果
+     */
+    public <R> ApiFuture<R> then(final Function<? super T, ? extends R> function) {
+        final ApiFuture<R> next = new ApiFuture<>();
+        next.source(this);
+        whenComplete(new Listener<T>() {
+            @Override
+            public void onComplete(ApiFuture<T> future) {
+                if (future.isCancelled()) {
+                    next.cancel(false);
+                } else if (future.exception() != null) {
+                    next.fail(future.exception());
+                } else {
+                    try {
+                        next.complete(function.apply(future.result()));
+                    } catch (Exception e) {
+                        next.fail(e);
+                    }
+                }
+            }
+        });
+        return next;
+    }
+
+    /**
+     * 成功后发起下一个异步请求，失败、取消时直接传递
+     *
+     * @param function 根据结果发起下一个请求
+     * @param <R>      下一个请求的结果类型
+     * @return 下一个请求的结果，取消时取消当前结果和下一个请求
+     */
+    public <R> ApiFuture<R> thenCompose(final Function<? super T, ApiFuture<R>> function) {
+        final ApiFuture<R> next = new ApiFuture<>();
+        next.source(this);
+        whenComplete(new Listener<T>() {
+            @Override
+            public void onComplete(ApiFuture<T> future) {
+                if (future.isCancelled()) {
+                    next.cancel(false);
+                    return;
+                }
+                if (future.exception() != null) {
+                    next.fail(future.exception());
+                    return;
+                }
+                ApiFuture<R> inner;
+                try {
+                    inner = function.apply(future.result());
+                } catch (Exception e) {
+                    next.fail(e);
+                    return;
+                }
+                next.source(inner);
+                inner.whenComplete(new Listener<R>() {
+                    @Override
+                    public void onComplete(ApiFuture<R> future) {
+                        if (future.isCancelled()) {
+                            next.cancel(false);
+                        } else if (future.exception() != null) {
+                            next.fail(future.exception());
+                        } else {
+                            next.complete(future.result());
+                        }
+                    }
+                });
+            }
+        });
+        return next;
+    }
+
+    /**
+     * 全部成功后完成，结果按传入顺序；任意一个失败时立即失败并取消其他请求
+     *
+     * @param futures 结果
+     * @param <T>     结果类型
+     * @return
+     */
+    public static <T> ApiFuture<List<T>> allOf(final List<ApiFuture<T>> futures) {
+        final ApiFuture<List<T>> all = new ApiFuture<>();
+        final int size = futures.size();
+        if (size == 0) {
+            all.complete(Collections.<T>emptyList());
+            return all;
+        }
+        final Object[] results = new Object[size];
+        final AtomicInteger remaining = new AtomicInteger(size);
+        for (ApiFuture<T> future : futures) {
+            all.source(future);
+        }
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            futures.get(i).whenComplete(new Listener<T>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public void onComplete(ApiFuture<T> future) {
+                    if (!future.isSuccessful()) {
+                        Exception exception = future.isCancelled() ? new CancellationException("Canceled") : future.exception();
+                        if (all.fail(exception)) {
+                            all.cancelSources();
+                        }
+                        return;
+                    }
+                    results[index] = future.result();
+                    if (remaining.decrementAndGet() == 0) {
+                        all.complete((List<T>) Arrays.asList(results));
+                    }
+                }
+            });
+        }
+        return all;
+    }
+
+    /**
+     * 第一个成功的结果，成功后取消其他请求；全部失败时以最后一个异常失败
+     *
+     * @param futures 结果
+     * @param <T>     结果类型
+     * @return
+     */
+    public static <T> ApiFuture<T> anyOf(final List<ApiFuture<T>> futures) {
+        final ApiFuture<T> any = new ApiFuture<>();
+        final int size = futures.size();
+        if (size == 0) {
+            any.fail(new IllegalArgumentException("No futures"));
+            return any;
+        }
+        final AtomicInteger remaining = new AtomicInteger(size);
+        for (ApiFuture<T> future : futures) {
+            any.source(future);
+        }
+        for (ApiFuture<T> future : futures) {
+            future.whenComplete(new Listener<T>() {
+                @Override
+                public void onComplete(ApiFuture<T> future) {
+                    if (future.isSuccessful()) {
+                        if (any.complete(future.result())) {
+                            any.cancelSources();
+                        }
+                        return;
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        any.fail(future.isCancelled() ? new CancellationException("Canceled") : future.exception());
+                    }
+                }
+            });
+        }
+        return any;
+    }
+
+    /**
+     * 网络请求回调，在请求线程读取响应后完成结果
+     */
+    static class CallCallback implements Callback {
+
+        private final ApiFuture<Response> future;
+        private final CallRegistry registry;
+        private final Class<?> decodeType;
+        private final boolean decodeList;
+        private Bandwidth bandwidth;
+
+        CallCallback(ApiFuture<Response> future, CallRegistry registry, RequestParams params) {
+            this.future = future;
+            this.registry = registry;
+            this.decodeType = params == null ? null : params.decodeType();
+            this.decodeList = params != null && params.isDecodeList();
+        }
+
+        /**
+         * 标记为接口请求，进行中时大流量传输让出带宽
+         *
+         * @param bandwidth 带宽管理
+         * @return
+         */
+        CallCallback interactive(Bandwidth bandwidth) {
+            this.bandwidth = bandwidth;
+            bandwidth.beginInteractive();
+            return this;
+        }
+
+        private void end(Call call) {
+            if (registry != null) {
+                registry.remove(call);
+            }
+            if (bandwidth != null) {
+                bandwidth.endInteractive();
+                bandwidth = null;
+            }
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            end(call);
+            if (call.isCanceled()) {
+                future.cancel(false);
+            } else {
+                future.fail(e);
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, okhttp3.Response response) {
+            Response result = null;
+            Exception exception = null;
+            try {
+                result = ApiMessenger.readResponse(call, response, decodeType, decodeList);
+                if (!response.isSuccessful()) {
+                    exception = new Exception(String.valueOf(response.code()));
+                }
+            } catch (Exception e) {
+                exception = e;
+            } finally {
+                response.close();
+                end(call);
+            }
+            if (exception == null) {
+                future.complete(result);
+            } else {
+                future.fail(exception);
+            }
+        }
+
+    }
+
+}
@@ -1,6 +1,5 @@
 package androidx.api;
 
-import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
@@ -13,14 +12,16 @@ import org.json.JSONObject;
 import java.io.IOException;
 import java.nio.charset.Charset;
 
+/**
+ * 请求结果投递<br/>
+ * 每条消息携带从回收池获取的{@link ResponseBody}，回调完成后回收信封，并发完成的请求互不覆盖。
+ */
 public class ApiMessenger extends Handler {
 
     public static final int SUCCEED = 200;
     public static final int FAILED = 500;
     public static final int PROGRESS = 600;
     public static final String TAG = ApiMessenger.class.getSimpleName();
-    private ResponseBody responseBody;
-    private Response response;
 
     public ApiMessenger() {
     }
@@ -36,29 +37,76 @@ public class ApiMessenger extends Handler {
      * @param result    响应结果
      * @param exception 异常
      * @return
+     * @throws IOException 读取响应内容异常
      */
-    private ResponseBody createResponseBody(okhttp3.Call call, okhttp3.Response result, Exception exception) {
-        if (responseBody == null) {
-            responseBody = new ResponseBody();
-        } else {
-            responseBody.release();
-        }
+    private ResponseBody createResponseBody(okhttp3.Call call, okhttp3.Response result, Exception exception) throws IOException {
+        return createResponseBody(call, result, exception, false, null);
+    }
+
+    /**
+     * 创建响应结果体
+     *
+     * @param call      请求
+     * @param result    响应结果
+     * @param exception 异常
+     * @param decoded   响应流是否已流式解析（不再读取body）
+     * @param object    流式解析结果
+     * @return
+     * @throws IOException 读取响应内容异常
+     */
+    private ResponseBody createResponseBody(okhttp3.Call call, okhttp3.Response result, Exception exception, boolean decoded, Object object) throws IOException {
+        ResponseBody responseBody = ResponseBody.obtain();
         //请求参数
+        fillRequest(responseBody.getRequest(), call);
+        //异常
+        responseBody.setException(exception);
+        //响应内容
+        try {
+            fillResponse(responseBody.getResponse(), call, result, decoded, object);
+        } catch (IOException e) {
+            responseBody.recycle();
+            throw e;
+        }
+        return responseBody;
+    }
+
+    /**
+     * 创建请求参数
+     *
+     * @param call 请求
+     * @return
+     */
+    public static Request createRequest(okhttp3.Call call) {
         Request request = new Request();
+        fillRequest(request, call);
+        return request;
+    }
+
+    /**
+     * 填充请求参数
+     *
+     * @param request 请求包
+     * @param call    请求
+     */
+    public static void fillRequest(Request request, okhttp3.Call call) {
         request.call(call);
         request.url(call.request().url());
         request.method(call.request().method());
         request.headers(call.request().headers());
         request.body(call.request().body());
-        responseBody.setRequest(request);
-        //异常
-        responseBody.setException(exception);
-        //响应内容
-        if (response == null) {
-            response = new Response();
-        } else {
-            response.close();
-        }
+    }
+
+    /**
+     * 填充响应内容，未流式解析时读取body
+     *
+     * @param response 响应
+     * @param call     请求
+     * @param result   响应结果
+     * @param decoded  响应流是否已流式解析（不再读取body）
+     * @param object   流式解析结果
+     * @throws IOException 读取body时网络异常、取消
+     */
+    public static void fillResponse(Response response, okhttp3.Call call, okhttp3.Response result, boolean decoded, Object object) throws IOException {
         if (result != null) {
             response.call(call);
             response.code(result.code());
@@ -66,17 +114,35 @@ public class ApiMessenger extends Handler {
             response.message(result.message());
             response.protocol(result.protocol());
             response.request(result.request());
-            byte[] bytes = null;
-            try {
-                bytes = result.body().bytes();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            response.object(object);
+        }
+        if (result != null && !decoded) {
+            byte[] bytes = result.body().bytes();
             response.bytes(bytes);
-            response.body(bytes == null ? null : new String(bytes, Charset.forName("UTF-8")));
+            response.body(new String(bytes, Charset.forName("UTF-8")));
         }
-        responseBody.setResponse(response);
-        return responseBody;
+    }
+
+    /**
+     * 读取响应，请求成功且设置解析类型时从响应流解析，否则读取body
+     *
+     * @param call       请求
+     * @param result     响应结果
+     * @param decodeType 流式解析类型，为空时不解析
+     * @param decodeList 是否解析为列表
+     * @return
+     * @throws IOException 读取body、解析时网络异常、取消
+     */
+    public static Response readResponse(okhttp3.Call call, okhttp3.Response result, Class<?> decodeType, boolean decodeList) throws IOException {
+        Response response = new Response();
+        if (result.isSuccessful() && decodeType != null) {
+            JSONStream stream = JSONStream.acquire();
+            Object object = decodeList ? stream.toList(result.body().source(), decodeType) : stream.toObject(result.body().source(), decodeType);
+            fillResponse(response, call, result, true, object);
+        } else {
+            fillResponse(response, call, result, false, null);
+        }
+        return response;
     }
 
     /**
@@ -89,12 +155,129 @@ public class ApiMessenger extends Handler {
      * @param listener  监听
      */
     public void send(int what, okhttp3.Call call, okhttp3.Response result, Exception exception, OnRequestListener listener) {
-        Message message = obtainMessage();
-        message.what = what;
-        ResponseBody responseBody = createResponseBody(call, result, exception);
+        send(what, call, result, exception, listener, null);
+    }
+
+    /**
+     * 按投递策略发送信息
+     *
+     * @param what      类型
+     * @param call      请求
+     * @param result    响应结果
+     * @param exception 异常
+     * @param listener  监听
+     * @param delivery  投递策略，为空时通过当前Handler投递
+     */
+    public void send(int what, okhttp3.Call call, okhttp3.Response result, Exception exception, OnRequestListener listener, Delivery delivery) {
+        ResponseBody responseBody;
+        try {
+            responseBody = createResponseBody(call, result, exception);
+        } catch (IOException e) {
+            //读取响应内容失败，按请求失败回调
+            sendFailed(call, e, listener, delivery);
+            return;
+        }
         responseBody.setOnRequestListener(listener);
-        message.obj = responseBody;
-        sendMessage(message);
+        deliver(what, responseBody, delivery);
+    }
+
+    /**
+     * 读取响应内容失败时发送失败信息
+     *
+     * @param call      请求
+     * @param exception 读取异常
+     * @param listener  监听
+     * @param delivery  投递策略，为空时通过当前Handler投递
+     */
+    private void sendFailed(okhttp3.Call call, IOException exception, OnRequestListener listener, Delivery delivery) {
+        ResponseBody responseBody = ResponseBody.obtain();
+        fillRequest(responseBody.getRequest(), call);
+        responseBody.setException(exception);
+        responseBody.setOnRequestListener(listener);
+        deliver(FAILED, responseBody, delivery);
+    }
+
+    /**
+     * 发送流式解析结果信息
+     *
+     * @param what      类型
+     * @param call      请求
+     * @param result    响应结果（body已读取）
+     * @param object    解析结果
+     * @param exception 异常
+     * @param listener  监听
+     */
+    public void send(int what, okhttp3.Call call, okhttp3.Response result, Object object, Exception exception, OnRequestListener listener) {
+        send(what, call, result, object, exception, listener, null);
+    }
+
+    /**
+     * 按投递策略发送流式解析结果信息
+     *
+     * @param what      类型
+     * @param call      请求
+     * @param result    响应结果（body已读取）
+     * @param object    解析结果
+     * @param exception 异常
+     * @param listener  监听
+     * @param delivery  投递策略，为空时通过当前Handler投递
+     */
+    public void send(int what, okhttp3.Call call, okhttp3.Response result, Object object, Exception exception, OnRequestListener listener, Delivery delivery) {
+        ResponseBody responseBody;
+        try {
+            responseBody = createResponseBody(call, result, exception, true, object);
+        } catch (IOException e) {
+            sendFailed(call, e, listener, delivery);
+            return;
+        }
+        responseBody.setOnRequestListener(listener);
+        deliver(what, responseBody, delivery);
+    }
+
+    /**
+     * 按投递策略发送已读取的响应
+     *
+     * @param what      类型
+     * @param call      请求
+     * @param response  响应，见{@link #readResponse(okhttp3.Call, okhttp3.Response, Class, boolean)}
+     * @param exception 异常
+     * @param listener  监听
+     * @param delivery  投递策略，为空时通过当前Handler投递
+     */
+    public void sendResponse(int what, okhttp3.Call call, Response response, Exception exception, OnRequestListener listener, Delivery delivery) {
+        ResponseBody responseBody = ResponseBody.obtain();
+        fillRequest(responseBody.getRequest(), call);
+        responseBody.setResponse(response);
+        responseBody.setException(exception);
+        responseBody.setOnRequestListener(listener);
+        deliver(what, responseBody, delivery);
+    }
+
+    /**
+     * 投递结果
+     *
+     * @param what         类型
+     * @param responseBody 响应结果体
+     * @param delivery     投递策略，为空时通过当前Handler投递
+     */
+    private void deliver(final int what, final ResponseBody responseBody, Delivery delivery) {
+        if (delivery == null) {
+            Message message = obtainMessage();
+            message.what = what;
+            message.obj = responseBody;
+            sendMessage(message);
+            return;
+        }
+        delivery.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    handle(what, responseBody);
+                } finally {
+                    responseBody.recycle();
+                }
+            }
+        });
     }
 
     /**
@@ -108,35 +291,45 @@ public class ApiMessenger extends Handler {
     public void send(int what, long contentLength, long progress, OnBufferedSinkListener listener) {
         Message message = obtainMessage();
         message.what = what;
-        if (responseBody == null) {
-            responseBody = new ResponseBody();
-        } else {
-            responseBody.release();
-        }
+        ResponseBody responseBody = ResponseBody.obtain();
         responseBody.setBufferedSinkListener(listener);
+        responseBody.setProgress(contentLength, progress);
         message.obj = responseBody;
-        Bundle bundle = new Bundle();
-        bundle.putLong("contentLength", contentLength);
-        bundle.putLong("progress", progress);
-        message.setData(bundle);
         sendMessage(message);
     }
 
     @Override
     public void handleMessage(@NonNull Message msg) {
         super.handleMessage(msg);
-        ResponseBody params = (ResponseBody) msg.obj;
+        if (!(msg.obj instanceof ResponseBody)) {
+            return;
+        }
+        ResponseBody responseBody = (ResponseBody) msg.obj;
+        try {
+            handle(msg.what, responseBody);
+        } finally {
+            responseBody.recycle();
+        }
+    }
+
+    /**
+     * 回调监听，回调返回后响应结果体被回收，请求包和响应不受影响
+     *
+     * @param what   类型
+     * @param params 响应结果体
+     */
+    protected void handle(int what, ResponseBody params) {
         Request request = params.getRequest();
         Exception exception = params.getException();
         Response response = params.getResponse();
         OnRequestListener requestListener = params.getRequestListener();
         OnBufferedSinkListener bufferedSinkListener = params.getBufferedSinkListener();
-        if (msg.what == SUCCEED) {
+        if (what == SUCCEED) {
             if (requestListener != null) {
                 requestListener.onRequestSucceed(request, response);
             }
         }
-        if (msg.what == FAILED) {
+        if (what == FAILED) {
             if (exception != null && exception.getMessage() != null) {
                 if (exception.getMessage().contains("not permitted by network security policy")) {
                     ApiLog.e(TAG, "服务器请求异常", "当前为http请求，建议安全使用https，如果一定要使用http,可在AndroidManifest.xml配置android:usesCleartextTraffic=\"true\"");
@@ -146,12 +339,9 @@ public class ApiMessenger extends Handler {
                 requestListener.onRequestFailed(request, exception);
             }
         }
-        if (msg.what == PROGRESS) {
+        if (what == PROGRESS) {
             if (bufferedSinkListener != null) {
-                Bundle data = msg.getData();
-                long contentLength = data.getLong("contentLength");
-                long progress = data.getLong("progress");
-                bufferedSinkListener.onBufferedSinkWrite(contentLength, progress);
+                bufferedSinkListener.onBufferedSinkWrite(params.getContentLength(), params.getProgress());
             }
         }
     }
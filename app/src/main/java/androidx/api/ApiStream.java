@@ -0,0 +1,681 @@
+package androidx.api;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * 流式响应<br/>
+ * 在请求线程逐条读取响应内容（按行{@link #LINE}、{@link #NDJSON}或{@link #SSE}事件），记录放入有界队列后按投递策略逐条回调，不读取整个响应；<br/>
+ * 队列满时读取线程暂停，直到回调取走记录，TCP接收窗口随之填满，服务器发送变慢（背压）；<br/>
+ * 内存占用不超过队列容量（{@link #capacity(int)}）乘以单条记录上限（{@link #maxRecordSize(long)}），与流的长度无关。
+ */
+public class ApiStream implements Callback, Runnable {
+
+    public final static String TAG = ApiStream.class.getSimpleName();
+    /**
+     * 按行读取，每行一条记录
+     */
+    public static final int LINE = 1;
+    /**
+     * 按行读取JSON，跳过空行，设置{@link RequestParams#decode(Class)}时逐行解析
+     */
+    public static final int NDJSON = 2;
+    /**
+     * Server-Sent Events，空行结束一个事件
+     */
+    public static final int SSE = 3;
+    /**
+     * 默认队列容量
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+    /**
+     * 默认单条记录上限 - 单位字节
+     */
+    public static final long DEFAULT_MAX_RECORD_SIZE = 1024 * 1024;
+    /**
+     * 一次投递最多回调的记录数，超过后重新投递，避免长时间占用主线程
+     */
+    private static final int DRAIN_BATCH = 64;
+    /**
+     * 队列满时检查取消的间隔 - 单位毫秒
+     */
+    private static final long OFFER_INTERVAL = 100;
+    /**
+     * 流调度器，每个流占用一个线程直到结束，不限制并发数，不占用接口请求调度器的主机并发数
+     */
+    private static final Dispatcher DISPATCHER = createDispatcher();
+    /**
+     * 派生流客户端的原客户端
+     */
+    private static OkHttpClient streamSource;
+    /**
+     * 流客户端
+     */
+    private static OkHttpClient streamClient;
+
+    /**
+     * 请求
+     */
+    private final OkApi api;
+    /**
+     * 上下文（请求标识）
+     */
+    private final Context context;
+    /**
+     * 方法
+     */
+    private final int method;
+    /**
+     * 路径
+     */
+    private final String path;
+    /**
+     * 参数
+     */
+    private final RequestParams params;
+    /**
+     * 格式
+     */
+    private int format = LINE;
+    /**
+     * 队列容量
+     */
+    private int capacity = DEFAULT_CAPACITY;
+    /**
+     * 单条记录上限 - 单位字节
+     */
+    private long maxRecordSize = DEFAULT_MAX_RECORD_SIZE;
+    /**
+     * 投递策略
+     */
+    private Delivery delivery;
+    /**
+     * 监听
+     */
+    private OnStreamListener listener;
+    /**
+     * 网络请求
+     */
+    private Call call;
+    /**
+     * 请求包
+     */
+    private Request request;
+    /**
+     * 记录队列
+     */
+    private ArrayBlockingQueue<Record> queue;
+    /**
+     * 响应头，回调后置空
+     */
+    private volatile Response opened;
+    /**
+     * 是否已读取结束
+     */
+    private volatile boolean finished;
+    /**
+     * 结束异常
+     */
+    private volatile Exception exception;
+    /**
+     * 是否已取消
+     */
+    private volatile boolean cancelled;
+    /**
+     * 是否有进行中的投递
+     */
+    private final AtomicBoolean draining = new AtomicBoolean();
+    /**
+     * 结束是否已回调
+     */
+    private final AtomicBoolean closed = new AtomicBoolean();
+    /**
+     * 已读取记录数
+     */
+    private final AtomicLong received = new AtomicLong();
+    /**
+     * 已回调记录数
+     */
+    private final AtomicLong delivered = new AtomicLong();
+    /**
+     * 最大队列深度
+     */
+    private volatile int maxDepth;
+    /**
+     * 读取线程暂停耗时（队列满）
+     */
+    private final Histogram stalls = new Histogram();
+    /**
+     * SSE最后事件ID
+     */
+    private volatile String lastEventId;
+    /**
+     * SSE重连间隔 - 单位毫秒
+     */
+    private volatile long retry = -1;
+
+    /**
+     * 构造函数，通过{@link OkApi#stream(Context, int, String, RequestParams)}创建
+     *
+     * @param api     请求
+     * @param context 上下文
+     * @param method  方法
+     * @param path    路径
+     * @param params  参数
+     */
+    public ApiStream(OkApi api, Context context, int method, String path, RequestParams params) {
+        this.api = api;
+        this.context = context;
+        this.method = method;
+        this.path = path;
+        this.params = params == null ? new RequestParams() : params;
+    }
+
+    /**
+     * 设置格式
+     *
+     * @param format {@link #LINE}、{@link #NDJSON}、{@link #SSE}，默认{@link #LINE}
+     * @return
+     */
+    public ApiStream format(int format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * 设置队列容量，回调落后超过容量时读取线程暂停
+     *
+     * @param capacity 容量，默认{@link #DEFAULT_CAPACITY}
+     * @return
+     */
+    public ApiStream capacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        return this;
+    }
+
+    /**
+     * 设置单条记录上限，超过时以异常结束
+     *
+     * @param maxRecordSize 上限 - 单位字节，默认{@link #DEFAULT_MAX_RECORD_SIZE}
+     * @return
+     */
+    public ApiStream maxRecordSize(long maxRecordSize) {
+        this.maxRecordSize = Math.max(1, maxRecordSize);
+        return this;
+    }
+
+    /**
+     * 设置回调投递策略
+     *
+     * @param delivery 投递策略，默认{@link RequestParams#delivery()}、{@link Configure#delivery()}；<br/>
+     *                 {@link Delivery#direct()}时在读取线程回调，回调返回后才读取下一条
+     * @return
+     */
+    public ApiStream delivery(Delivery delivery) {
+        this.delivery = delivery;
+        return this;
+    }
+
+    /**
+     * 开始请求；<br/>
+     * 流是长连接，使用单独的调度器，不经过{@link HostDispatcher}主机排队，也不标记为接口请求，避免长期占用主机并发数和让上传一直让出带宽；<br/>
+     * 读取不超时，结束由服务器关闭或{@link #cancel()}控制
+     *
+     * @param listener 监听
+     * @return
+     */
+    public ApiStream start(OnStreamListener listener) {
+        this.listener = listener;
+        if (delivery == null) {
+            delivery = api.getDelivery(params);
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        if (format == SSE && !params.header().containsKey("Accept")) {
+            params.addHeader("Accept", "text/event-stream");
+        }
+        call = client(api.getClient()).newCall(streamRequest(api.newCall(context, method, path, params).request()));
+        request = ApiMessenger.createRequest(call);
+        api.getCallRegistry().add(call);
+        api.dispatch(call, this, true);
+        return this;
+    }
+
+    /**
+     * @return 流调度器
+     */
+    private static Dispatcher createDispatcher() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Integer.MAX_VALUE);
+        dispatcher.setMaxRequestsPerHost(Integer.MAX_VALUE);
+        return dispatcher;
+    }
+
+    /**
+     * 标记为流式响应，日志拦截器不读取响应内容、缓存拦截器不预读
+     *
+     * @param request 请求
+     * @return
+     */
+    static okhttp3.Request streamRequest(okhttp3.Request request) {
+        return request.newBuilder().header(Api.STREAM, "true").build();
+    }
+
+    /**
+     * 流客户端，与原客户端共享连接池和拦截器，使用流调度器，读取不超时
+     *
+     * @param client 原客户端
+     * @return
+     */
+    private static synchronized OkHttpClient client(OkHttpClient client) {
+        if (streamClient == null || streamSource != client) {
+            streamSource = client;
+            streamClient = client.newBuilder()
+                    .dispatcher(DISPATCHER)
+                    .readTimeout(0, TimeUnit.MILLISECONDS)
+                    .build();
+        }
+        return streamClient;
+    }
+
+    /**
+     * 取消请求，丢弃未回调的记录，结束以取消异常回调
+     */
+    public void cancel() {
+        cancelled = true;
+        if (call != null) {
+            call.cancel();
+        }
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * @return 是否已取消
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return 已读取记录数
+     */
+    public long received() {
+        return received.get();
+    }
+
+    /**
+     * @return 已回调记录数
+     */
+    public long delivered() {
+        return delivered.get();
+    }
+
+    /**
+     * @return 待回调记录数（队列深度）
+     */
+    public int depth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @return 最大队列深度
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return 读取线程因队列满暂停的耗时
+     */
+    public Histogram stalls() {
+        return stalls;
+    }
+
+    /**
+     * @return SSE最后事件ID，断开后重新请求时可作为Last-Event-ID请求头
+     */
+    public String lastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * @return SSE服务器指定的重连间隔 - 单位毫秒，未指定时小于0
+     */
+    public long retry() {
+        return retry;
+    }
+
+    @Override
+    public void onFailure(Call call, IOException e) {
+        finish(call, e);
+    }
+
+    @Override
+    public void onResponse(Call call, okhttp3.Response response) {
+        Exception exception = null;
+        try {
+            if (!response.isSuccessful()) {
+                exception = new Exception(String.valueOf(response.code()));
+                return;
+            }
+            Response opened = new Response();
+            ApiMessenger.fillResponse(opened, call, response, true, null);
+            this.opened = opened;
+            drain();
+            BufferedSource source = response.body().source();
+            if (format == SSE) {
+                readEvents(source);
+            } else {
+                readLines(source);
+            }
+        } catch (Exception e) {
+            exception = e;
+        } finally {
+            response.close();
+            finish(call, exception);
+        }
+    }
+
+    /**
+     * 按行读取
+     *
+     * @param source 响应流
+     * @throws Exception
+     */
+    private void readLines(BufferedSource source) throws Exception {
+        Class<?> decodeType = format == NDJSON ? params.decodeType() : null;
+        String line;
+        while ((line = readLine(source)) != null) {
+            if (format == NDJSON && line.trim().length() == 0) {
+                continue;
+            }
+            Object object = null;
+            if (decodeType != null) {
+                object = JSONStream.acquire().toObject(new Buffer().writeUtf8(line), decodeType);
+            }
+            offer(new Record(received.get(), null, null, line, object));
+        }
+    }
+
+    /**
+     * 读取SSE事件，字段见https://html.spec.whatwg.org/multipage/server-sent-events.html
+     *
+     * @param source 响应流
+     * @throws Exception
+     */
+    private void readEvents(BufferedSource source) throws Exception {
+        StringBuilder data = null;
+        String event = null;
+        String line;
+        while ((line = readLine(source)) != null) {
+            if (line.length() == 0) {
+                if (data != null) {
+                    offer(new Record(received.get(), lastEventId, event == null ? "message" : event, data.toString(), null));
+                }
+                data = null;
+                event = null;
+                continue;
+            }
+            if (line.startsWith(":")) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = colon < 0 ? "" : line.substring(colon + 1);
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            if (field.equals("data")) {
+                if (data == null) {
+                    data = new StringBuilder();
+                } else {
+                    data.append('\n');
+                }
+                data.append(value);
+                if (data.length() > maxRecordSize) {
+                    throw new IOException("Record exceeds " + maxRecordSize + " bytes");
+                }
+            } else if (field.equals("event")) {
+                event = value;
+            } else if (field.equals("id")) {
+                if (value.indexOf('\0') < 0) {
+                    lastEventId = value;
+                }
+            } else if (field.equals("retry")) {
+                try {
+                    retry = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    ApiLog.i(TAG, "ignore retry " + value);
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取一行，只缓冲到换行符为止，超过单条记录上限时抛出异常
+     *
+     * @param source 响应流
+     * @return 不含换行符的行，流结束时为空
+     * @throws IOException
+     */
+    private String readLine(BufferedSource source) throws IOException {
+        Buffer buffer = source.buffer();
+        long scanned = 0;
+        while (true) {
+            long index = buffer.indexOf((byte) '\n', scanned);
+            if (index != -1) {
+                if (index > maxRecordSize) {
+                    throw new IOException("Record exceeds " + maxRecordSize + " bytes");
+                }
+                String line = buffer.readUtf8(index);
+                buffer.skip(1);
+                return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+            }
+            scanned = buffer.size();
+            if (scanned > maxRecordSize) {
+                throw new IOException("Record exceeds " + maxRecordSize + " bytes");
+            }
+            if (!source.request(scanned + 1)) {
+                return scanned == 0 ? null : buffer.readUtf8();
+            }
+        }
+    }
+
+    /**
+     * 记录放入队列，队列满时暂停读取
+     *
+     * @param record 记录
+     * @throws IOException 取消、中断
+     */
+    private void offer(Record record) throws IOException {
+        long start = 0;
+        try {
+            while (!queue.offer(record)) {
+                if (start == 0) {
+                    start = SystemClock.elapsedRealtimeNanos();
+                }
+                if (cancelled) {
+                    throw new IOException("Canceled");
+                }
+                if (queue.offer(record, OFFER_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted");
+        }
+        if (start != 0) {
+            stalls.record(SystemClock.elapsedRealtimeNanos() - start);
+        }
+        received.incrementAndGet();
+        int depth = queue.size();
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+        drain();
+    }
+
+    /**
+     * 读取结束
+     *
+     * @param call      请求
+     * @param exception 异常
+     */
+    private void finish(Call call, Exception exception) {
+        api.getCallRegistry().remove(call);
+        if (exception == null && cancelled) {
+            exception = new IOException("Canceled");
+        }
+        this.exception = exception;
+        finished = true;
+        drain();
+    }
+
+    /**
+     * 投递回调，已有进行中的投递时不重复投递
+     */
+    private void drain() {
+        if (draining.compareAndSet(false, true)) {
+            delivery.execute(this);
+        }
+    }
+
+    /**
+     * @return 是否有待回调的内容
+     */
+    private boolean hasPending() {
+        return opened != null || !queue.isEmpty() || (finished && !closed.get());
+    }
+
+    @Override
+    public void run() {
+        try {
+            drainRecords();
+        } catch (RuntimeException e) {
+            //回调异常时取消，读取线程不再等待队列，结束后重新投递结束回调
+            cancel();
+            draining.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * 依次回调响应头、记录和结束
+     */
+    private void drainRecords() {
+        int count = 0;
+        while (true) {
+            Response response = opened;
+            if (response != null) {
+                opened = null;
+                if (!cancelled) {
+                    listener.onStreamOpen(request, response);
+                }
+            }
+            //先读取结束状态再取记录：结束前放入的记录一定能取到，避免结束回调早于最后一条记录
+            boolean ended = finished;
+            Record record = queue.poll();
+            if (record != null) {
+                if (!cancelled) {
+                    listener.onStreamRecord(record);
+                }
+                delivered.incrementAndGet();
+                if (++count >= DRAIN_BATCH) {
+                    //让出线程，剩余记录重新投递
+                    delivery.execute(this);
+                    return;
+                }
+                continue;
+            }
+            if (ended && closed.compareAndSet(false, true)) {
+                listener.onStreamClosed(request, exception);
+            }
+            draining.set(false);
+            if (!hasPending() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 记录
+     */
+    public static class Record {
+
+        private final long index;
+        private final String id;
+        private final String event;
+        private final String data;
+        private final Object object;
+
+        Record(long index, String id, String event, String data, Object object) {
+            this.index = index;
+            this.id = id;
+            this.event = event;
+            this.data = data;
+            this.object = object;
+        }
+
+        /**
+         * @return 序号，从0开始
+         */
+        public long index() {
+            return index;
+        }
+
+        /**
+         * @return SSE事件ID，按行读取时为空
+         */
+        public String id() {
+            return id;
+        }
+
+        /**
+         * @return SSE事件类型，未指定时为message，按行读取时为空
+         */
+        public String event() {
+            return event;
+        }
+
+        /**
+         * @return 行内容或SSE事件数据（多行data以换行连接）
+         */
+        public String data() {
+            return data;
+        }
+
+        /**
+         * @return NDJSON逐行解析结果，未设置解析类型时为空
+         */
+        public Object object() {
+            return object;
+        }
+
+        @Override
+        public String toString() {
+            return "Record{" +
+                    "index=" + index +
+                    ", id='" + id + '\'' +
+                    ", event='" + event + '\'' +
+                    ", data='" + data + '\'' +
+                    '}';
+        }
+
+    }
+
+}
@@ -0,0 +1,214 @@
+package androidx.api;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * 带宽管理<br/>
+ * 下载（{@link Downloader}）和上传（{@link SinkBody}）属于大流量传输，每次读写按全局、主机、单个传输三级令牌桶限速；<br/>
+ * 有接口请求（非上传）进行中时，大流量传输额外受{@link #bulkRate(long)}限速，把带宽让给接口请求；<br/>
+ * 上传使用单独的调度器（{@link #bulkClient(OkHttpClient)}），不占用接口请求的并发数。
+ */
+public class Bandwidth {
+
+    public final static String TAG = Bandwidth.class.getSimpleName();
+
+    private static Bandwidth instance;
+    /**
+     * 全局限速
+     */
+    private final RateLimiter global = new RateLimiter(0);
+    /**
+     * 主机 - 限速
+     */
+    private final Map<String, RateLimiter> hosts = new ConcurrentHashMap<>();
+    /**
+     * 接口请求进行中时大流量传输限速
+     */
+    private final RateLimiter bulk = new RateLimiter(0);
+    /**
+     * 进行中的接口请求数
+     */
+    private final AtomicInteger interactive = new AtomicInteger();
+    /**
+     * 上传调度器
+     */
+    private final Dispatcher bulkDispatcher;
+    /**
+     * 派生上传客户端的原客户端
+     */
+    private OkHttpClient bulkSource;
+    /**
+     * 上传客户端
+     */
+    private OkHttpClient bulkClient;
+
+    private Bandwidth() {
+        bulkDispatcher = new Dispatcher();
+        bulkDispatcher.setMaxRequests(2);
+        bulkDispatcher.setMaxRequestsPerHost(2);
+    }
+
+    public static Bandwidth acquire() {
+        if (instance == null) {
+            synchronized (Bandwidth.class) {
+                if (instance == null) {
+                    instance = new Bandwidth();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 设置全局限速
+     *
+     * @param rate 速率 - 字节/秒，小于等于0不限速
+     * @return
+     */
+    public Bandwidth rate(long rate) {
+        global.rate(rate);
+        return this;
+    }
+
+    /**
+     * @return 全局限速 - 字节/秒
+     */
+    public long rate() {
+        return global.rate();
+    }
+
+    /**
+     * 设置主机限速
+     *
+     * @param host 主机
+     * @param rate 速率 - 字节/秒，小于等于0不限速
+     * @return
+     */
+    public Bandwidth rate(String host, long rate) {
+        if (rate <= 0) {
+            hosts.remove(host);
+            return this;
+        }
+        RateLimiter limiter = hosts.get(host);
+        if (limiter == null) {
+            hosts.put(host, new RateLimiter(rate));
+        } else {
+            limiter.rate(rate);
+        }
+        return this;
+    }
+
+    /**
+     * @param host 主机
+     * @return 主机限速 - 字节/秒，未设置时为0
+     */
+    public long rate(String host) {
+        RateLimiter limiter = host == null ? null : hosts.get(host);
+        return limiter == null ? 0 : limiter.rate();
+    }
+
+    /**
+     * 设置接口请求进行中时大流量传输的总速率
+     *
+     * @param rate 速率 - 字节/秒，小于等于0不让出带宽
+     * @return
+     */
+    public Bandwidth bulkRate(long rate) {
+        bulk.rate(rate);
+        return this;
+    }
+
+    /**
+     * @return 接口请求进行中时大流量传输的总速率 - 字节/秒
+     */
+    public long bulkRate() {
+        return bulk.rate();
+    }
+
+    /**
+     * 设置上传最大并发数
+     *
+     * @param maxRequests        最大并发数
+     * @param maxRequestsPerHost 单个主机最大并发数
+     * @return
+     */
+    public Bandwidth maxBulkRequests(int maxRequests, int maxRequestsPerHost) {
+        bulkDispatcher.setMaxRequests(maxRequests);
+        bulkDispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        return this;
+    }
+
+    /**
+     * @return 上传调度器
+     */
+    public Dispatcher bulkDispatcher() {
+        return bulkDispatcher;
+    }
+
+    /**
+     * 上传客户端，与原客户端共享连接池和拦截器，使用上传调度器
+     *
+     * @param client 原客户端
+     * @return
+     */
+    public synchronized OkHttpClient bulkClient(OkHttpClient client) {
+        if (bulkClient == null || bulkSource != client) {
+            bulkSource = client;
+            bulkClient = client.newBuilder().dispatcher(bulkDispatcher).build();
+        }
+        return bulkClient;
+    }
+
+    /**
+     * 接口请求开始
+     */
+    public void beginInteractive() {
+        interactive.incrementAndGet();
+    }
+
+    /**
+     * 接口请求结束
+     */
+    public void endInteractive() {
+        interactive.decrementAndGet();
+    }
+
+    /**
+     * @return 进行中的接口请求数
+     */
+    public int interactiveCount() {
+        return interactive.get();
+    }
+
+    /**
+     * 大流量传输读写后限速，依次经过全局、主机、单个传输、接口请求让出四个令牌桶
+     *
+     * @param host     主机，可为空
+     * @param transfer 单个传输限速，可为空
+     * @param bytes    字节数
+     * @throws InterruptedIOException 等待时线程被中断
+     */
+    public void throttle(String host, RateLimiter transfer, long bytes) throws InterruptedIOException {
+        if (bytes <= 0) {
+            return;
+        }
+        global.acquire(bytes);
+        RateLimiter limiter = host == null ? null : hosts.get(host);
+        if (limiter != null) {
+            limiter.acquire(bytes);
+        }
+        if (transfer != null) {
+            transfer.acquire(bytes);
+        }
+        if (interactive.get() > 0) {
+            bulk.acquire(bytes);
+        }
+    }
+
+}
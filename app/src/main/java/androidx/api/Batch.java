@@ -0,0 +1,486 @@
+package androidx.api;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+
+/**
+ * 批量请求<br/>
+ * 按添加顺序发送，同时进行的请求数不超过窗口大小（{@link #window(int)}），一个完成后发送下一个，使用{@link Configure#hostDispatcher()}调度；<br/>
+ * 响应在请求线程读取完成，主线程最多只有一个待处理的投递，投递时处理所有已完成的结果，批量完成只回调一次；<br/>
+ * 快速失败（{@link #failFast(boolean)}）时第一个失败（异常或非2xx）取消其他请求并立即完成，否则等待全部完成。
+ */
+public class Batch implements Runnable {
+
+    public final static String TAG = Batch.class.getSimpleName();
+    /**
+     * 逐个回调时的最小投递间隔（一帧） - 单位毫秒
+     */
+    public static final long STREAM_INTERVAL = 16;
+
+    /**
+     * 请求
+     */
+    private final OkApi api;
+    /**
+     * 上下文（请求标识）
+     */
+    private final Context context;
+    /**
+     * 请求项
+     */
+    private final List<Item> items = new ArrayList<>();
+    /**
+     * 窗口大小
+     */
+    private int window;
+    /**
+     * 是否快速失败
+     */
+    private boolean failFast;
+    /**
+     * 是否逐个回调结果
+     */
+    private boolean stream;
+    /**
+     * 监听
+     */
+    private OnBatchListener listener;
+    /**
+     * 主线程投递
+     */
+    private final Handler handler;
+    /**
+     * 请求
+     */
+    private Call[] calls;
+    /**
+     * 结果
+     */
+    private Result[] results;
+    /**
+     * 下一个请求位置
+     */
+    private final AtomicInteger next = new AtomicInteger();
+    /**
+     * 已完成个数
+     */
+    private final AtomicInteger completed = new AtomicInteger();
+    /**
+     * 是否已完成（全部完成、快速失败或取消），只在{@link #lock}内设置为true
+     */
+    private final AtomicBoolean finished = new AtomicBoolean();
+    /**
+     * 结果写入和完成的锁，完成后不再写入结果
+     */
+    private final Object lock = new Object();
+    /**
+     * 完成时的结果快照
+     */
+    private volatile List<Result> snapshot;
+    /**
+     * 快速失败的结果
+     */
+    private volatile Result failure;
+    /**
+     * 待逐个回调的结果
+     */
+    private final ConcurrentLinkedQueue<Result> queue = new ConcurrentLinkedQueue<>();
+    /**
+     * 是否有待处理的投递
+     */
+    private final AtomicBoolean pending = new AtomicBoolean();
+    /**
+     * 完成是否已回调（主线程）
+     */
+    private boolean delivered;
+    /**
+     * 主线程投递次数
+     */
+    private final AtomicLong messages = new AtomicLong();
+    /**
+     * 上次投递时间
+     */
+    private volatile long lastPost;
+
+    /**
+     * 构造函数，通过{@link OkApi#batch(Context)}创建
+     *
+     * @param api     请求
+     * @param context 上下文
+     */
+    public Batch(OkApi api, Context context) {
+        this.api = api;
+        this.context = context;
+        this.handler = new Handler(Looper.getMainLooper());
+        Configure configure = Configure.Config();
+        this.window = configure == null ? 5 : configure.maxRequestsPerHost();
+    }
+
+    /**
+     * 添加请求
+     *
+     * @param method 方法{@link OkApi#GET}、{@link OkApi#POST}、{@link OkApi#PUT}、{@link OkApi#DELETE}、{@link OkApi#PATCH}
+     * @param path   路径
+     * @param params 参数
+     * @return
+     */
+    public Batch add(int method, String path, RequestParams params) {
+        items.add(new Item(method, path, params == null ? new RequestParams() : params));
+        return this;
+    }
+
+    /**
+     * 设置窗口大小，同时进行的请求数
+     *
+     * @param window 窗口大小，默认调度器单主机最大请求数
+     * @return
+     */
+    public Batch window(int window) {
+        this.window = Math.max(1, window);
+        return this;
+    }
+
+    /**
+     * 设置是否快速失败，默认false等待全部完成
+     *
+     * @param failFast 是否快速失败
+     * @return
+     */
+    public Batch failFast(boolean failFast) {
+        this.failFast = failFast;
+        return this;
+    }
+
+    /**
+     * 设置是否逐个回调结果{@link OnBatchListener#onBatchItem(Result)}，默认false只回调完成
+     *
+     * @param stream 是否逐个回调
+     * @return
+     */
+    public Batch stream(boolean stream) {
+        this.stream = stream;
+        return this;
+    }
+
+    /**
+     * @return 请求个数
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * @return 主线程投递次数
+     */
+    public long messageCount() {
+        return messages.get();
+    }
+
+    /**
+     * 开始请求
+     *
+     * @param listener 监听
+     * @return
+     */
+    public Batch start(OnBatchListener listener) {
+        this.listener = listener;
+        int size = items.size();
+        calls = new Call[size];
+        results = new Result[size];
+        if (size == 0) {
+            synchronized (lock) {
+                finish();
+            }
+            post();
+            return this;
+        }
+        int count = Math.min(window, size);
+        for (int i = 0; i < count; i++) {
+            startNext();
+        }
+        return this;
+    }
+
+    /**
+     * 取消未完成的请求，完成回调结果中未完成的请求为空
+     */
+    public void cancel() {
+        boolean cancelled;
+        synchronized (lock) {
+            cancelled = finish();
+        }
+        if (cancelled) {
+            cancelCalls();
+            post();
+        }
+    }
+
+    /**
+     * 标记完成并复制结果快照，需要持有{@link #lock}
+     *
+     * @return 是否由本次调用完成
+     */
+    private boolean finish() {
+        if (!finished.compareAndSet(false, true)) {
+            return false;
+        }
+        snapshot = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(results)));
+        return true;
+    }
+
+    /**
+     * 发送下一个请求
+     */
+    private void startNext() {
+        if (finished.get()) {
+            return;
+        }
+        int index = next.getAndIncrement();
+        if (index >= items.size()) {
+            return;
+        }
+        Item item = items.get(index);
+        Call call;
+        try {
+            call = api.newCall(context, item.method, item.path, item.params);
+        } catch (RuntimeException e) {
+            complete(new Result(index, item, null, null, e));
+            return;
+        }
+        //与完成在同一个锁内发布请求，完成后的取消一定能取消到该请求
+        synchronized (lock) {
+            if (finished.get()) {
+                call.cancel();
+                return;
+            }
+            calls[index] = call;
+        }
+        api.getCallRegistry().add(call);
+        api.dispatch(call, new ItemCallback(index), false);
+    }
+
+    /**
+     * 取消进行中的请求
+     */
+    private void cancelCalls() {
+        for (Call call : calls) {
+            if (call != null) {
+                call.cancel();
+            }
+        }
+    }
+
+    /**
+     * 请求完成
+     *
+     * @param result 结果
+     */
+    private void complete(Result result) {
+        boolean done;
+        boolean finishing = false;
+        synchronized (lock) {
+            if (finished.get()) {
+                return;
+            }
+            results[result.index] = result;
+            calls[result.index] = null;
+            if (stream) {
+                queue.add(result);
+            }
+            done = completed.incrementAndGet() == items.size();
+            if (failFast && !result.isSuccessful()) {
+                failure = result;
+                done = true;
+            }
+            if (done) {
+                finishing = finish();
+            }
+        }
+        if (done) {
+            if (finishing) {
+                cancelCalls();
+                post();
+            }
+            return;
+        }
+        if (stream) {
+            post();
+        }
+        startNext();
+    }
+
+    /**
+     * 投递到主线程，已有待处理的投递时不重复投递；<br/>
+     * 逐个回调时两次投递至少间隔{@link #STREAM_INTERVAL}，间隔内完成的结果在同一次投递中回调
+     */
+    private void post() {
+        if (pending.compareAndSet(false, true)) {
+            messages.incrementAndGet();
+            long now = SystemClock.uptimeMillis();
+            long delay = finished.get() ? 0 : lastPost + STREAM_INTERVAL - now;
+            lastPost = now + Math.max(0, delay);
+            if (delay > 0) {
+                handler.postDelayed(this, delay);
+            } else {
+                handler.post(this);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        pending.set(false);
+        if (delivered) {
+            return;
+        }
+        Result result;
+        while ((result = queue.poll()) != null) {
+            if (listener != null) {
+                listener.onBatchItem(result);
+            }
+        }
+        if (finished.get()) {
+            delivered = true;
+            if (listener != null) {
+                listener.onBatchCompleted(snapshot, failure);
+            }
+        }
+    }
+
+    /**
+     * 单个请求回调，在请求线程读取响应
+     */
+    private class ItemCallback implements Callback {
+
+        private final int index;
+
+        ItemCallback(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            api.getCallRegistry().remove(call);
+            complete(new Result(index, items.get(index), ApiMessenger.createRequest(call), null, e));
+        }
+
+        @Override
+        public void onResponse(Call call, okhttp3.Response response) {
+            api.getCallRegistry().remove(call);
+            Item item = items.get(index);
+            Response result = null;
+            Exception exception = null;
+            try {
+                result = ApiMessenger.readResponse(call, response, item.params.decodeType(), item.params.isDecodeList());
+                if (!response.isSuccessful()) {
+                    exception = new Exception(String.valueOf(response.code()));
+                }
+            } catch (Exception e) {
+                exception = e;
+            } finally {
+                response.close();
+            }
+            complete(new Result(index, item, ApiMessenger.createRequest(call), result, exception));
+        }
+
+    }
+
+    /**
+     * 请求项
+     */
+    private static class Item {
+
+        final int method;
+        final String path;
+        final RequestParams params;
+
+        Item(int method, String path, RequestParams params) {
+            this.method = method;
+            this.path = path;
+            this.params = params;
+        }
+
+    }
+
+    /**
+     * 请求结果
+     */
+    public static class Result {
+
+        private final int index;
+        private final int method;
+        private final String path;
+        private final RequestParams params;
+        private final Request request;
+        private final Response response;
+        private final Exception exception;
+
+        Result(int index, Item item, Request request, Response response, Exception exception) {
+            this.index = index;
+            this.method = item.method;
+            this.path = item.path;
+            this.params = item.params;
+            this.request = request;
+            this.response = response;
+            this.exception = exception;
+        }
+
+        /**
+         * @return 添加顺序
+         */
+        public int index() {
+            return index;
+        }
+
+        public int method() {
+            return method;
+        }
+
+        public String path() {
+            return path;
+        }
+
+        public RequestParams params() {
+            return params;
+        }
+
+        public Request request() {
+            return request;
+        }
+
+        /**
+         * @return 响应，请求异常时为空
+         */
+        public Response response() {
+            return response;
+        }
+
+        public Exception exception() {
+            return exception;
+        }
+
+        /**
+         * @return 是否成功（无异常且2xx）
+         */
+        public boolean isSuccessful() {
+            return exception == null;
+        }
+
+    }
+
+}
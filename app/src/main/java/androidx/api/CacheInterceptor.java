@@ -0,0 +1,497 @@
+package androidx.api;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * 缓存拦截器<br/>
+ * 1.内存热缓存：GET请求有max-age的小响应（不超过{@link #maxEntrySize()}）按LRU保存在内存，新鲜期内不经过磁盘和网络，<br/>
+ * 缓存键包含Authorization，不同用户的响应互不返回，带Vary（Accept-Encoding除外）的响应不进入内存缓存；<br/>
+ * 2.磁盘缓存：{@link Configure#cache(java.io.File, long)}设置的okhttp3.Cache，按HTTP缓存头和LRU容量管理；<br/>
+ * 3.过期可用（{@link Api#STALE_WHILE_REVALIDATE}）：过期时间在窗口内时先返回过期的缓存，后台请求网络刷新；<br/>
+ * 4.统计内存命中、磁盘命中、验证（304）、未命中和后台刷新次数。<br/>
+ * 作为最后一个应用拦截器添加，见{@link ClientRegistry}，请求地址已是替换域名后的地址。
+ */
+public class CacheInterceptor implements Interceptor {
+
+    public static final String TAG = CacheInterceptor.class.getSimpleName();
+    /**
+     * 过期响应警告头
+     */
+    private static final String WARNING_STALE = "110";
+    /**
+     * 按Vary区分的响应不进入内存缓存，Accept-Encoding由okhttp透明处理，不影响应用拦截器看到的响应
+     */
+    private static final String VARY_ACCEPT_ENCODING = "Accept-Encoding";
+    /**
+     * 内存缓存：缓存键 - 缓存项，按访问顺序
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+    /**
+     * 后台刷新中的缓存键
+     */
+    private final Set<String> refreshing = Collections.synchronizedSet(new HashSet<String>());
+    /**
+     * 内存缓存容量 - 字节，小于等于0不使用内存缓存
+     */
+    private long maxSize;
+    /**
+     * 当前内存缓存大小 - 字节
+     */
+    private long size;
+    /**
+     * 单个响应最大内存缓存大小 - 字节
+     */
+    private long maxEntrySize = 64 * 1024;
+    /**
+     * 内存命中次数
+     */
+    private final AtomicLong memoryHits = new AtomicLong();
+    /**
+     * 磁盘命中次数
+     */
+    private final AtomicLong diskHits = new AtomicLong();
+    /**
+     * 返回过期缓存次数
+     */
+    private final AtomicLong staleHits = new AtomicLong();
+    /**
+     * 验证次数（服务器返回304）
+     */
+    private final AtomicLong revalidations = new AtomicLong();
+    /**
+     * 未命中次数
+     */
+    private final AtomicLong misses = new AtomicLong();
+    /**
+     * 后台刷新次数
+     */
+    private final AtomicLong refreshes = new AtomicLong();
+
+    /**
+     * @return 内存缓存容量 - 字节
+     */
+    public synchronized long maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 设置内存缓存容量，超出时淘汰最久未使用的响应
+     *
+     * @param maxSize 容量 - 字节，小于等于0不使用内存缓存
+     * @return
+     */
+    public synchronized CacheInterceptor maxSize(long maxSize) {
+        this.maxSize = maxSize;
+        trim();
+        return this;
+    }
+
+    /**
+     * @return 单个响应最大内存缓存大小 - 字节
+     */
+    public synchronized long maxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * 设置单个响应最大内存缓存大小
+     *
+     * @param maxEntrySize 大小 - 字节
+     * @return
+     */
+    public synchronized CacheInterceptor maxEntrySize(long maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+        return this;
+    }
+
+    /**
+     * @return 当前内存缓存大小 - 字节
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    public long memoryHitCount() {
+        return memoryHits.get();
+    }
+
+    public long diskHitCount() {
+        return diskHits.get();
+    }
+
+    public long staleHitCount() {
+        return staleHits.get();
+    }
+
+    public long revalidateCount() {
+        return revalidations.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long refreshCount() {
+        return refreshes.get();
+    }
+
+    /**
+     * 清空内存缓存和统计
+     */
+    public synchronized void evictAll() {
+        entries.clear();
+        size = 0;
+        memoryHits.set(0);
+        diskHits.set(0);
+        staleHits.set(0);
+        revalidations.set(0);
+        misses.set(0);
+        refreshes.set(0);
+    }
+
+    @Override
+    public okhttp3.Response intercept(Chain chain) throws IOException {
+        okhttp3.Request request = chain.request();
+        int staleWhileRevalidate = staleWhileRevalidate(request);
+        if (request.header(Api.STALE_WHILE_REVALIDATE) != null) {
+            request = request.newBuilder().removeHeader(Api.STALE_WHILE_REVALIDATE).build();
+        }
+        if (request.header(Api.STREAM) != null) {
+            //流式响应不进入内存缓存，预读会阻塞到读满或连接关闭
+            return chain.proceed(request.newBuilder().removeHeader(Api.STREAM).build());
+        }
+        if (!"GET".equals(request.method())) {
+            return chain.proceed(request);
+        }
+        CacheControl cacheControl = request.cacheControl();
+        String key = key(request);
+        if (!cacheControl.noCache() && !cacheControl.noStore()) {
+            Entry entry = get(key);
+            if (entry != null) {
+                long age = System.currentTimeMillis() - entry.receivedAt;
+                long fresh = entry.maxAge;
+                if (cacheControl.maxAgeSeconds() != -1) {
+                    fresh = Math.min(fresh, TimeUnit.SECONDS.toMillis(cacheControl.maxAgeSeconds()));
+                }
+                if (cacheControl.minFreshSeconds() != -1) {
+                    fresh -= TimeUnit.SECONDS.toMillis(cacheControl.minFreshSeconds());
+                }
+                long maxStale = cacheControl.maxStaleSeconds() == -1 ? 0 : TimeUnit.SECONDS.toMillis(cacheControl.maxStaleSeconds());
+                if (age < fresh + maxStale) {
+                    memoryHits.incrementAndGet();
+                    return entry.response(request, age >= fresh);
+                }
+                if (age < fresh + TimeUnit.SECONDS.toMillis(staleWhileRevalidate)) {
+                    staleHits.incrementAndGet();
+                    refresh(request);
+                    return entry.response(request, true);
+                }
+            }
+            if (staleWhileRevalidate > 0 && cacheControl.maxStaleSeconds() < staleWhileRevalidate) {
+                //磁盘缓存允许在窗口内返回过期响应
+                request = request.newBuilder().cacheControl(maxStale(cacheControl, staleWhileRevalidate)).build();
+            }
+        }
+        okhttp3.Response response = chain.proceed(request);
+        if (response.networkResponse() == null && response.cacheResponse() != null) {
+            if (isStale(response) && staleWhileRevalidate > 0) {
+                staleHits.incrementAndGet();
+                refresh(request);
+            } else {
+                diskHits.incrementAndGet();
+            }
+        } else if (response.networkResponse() != null && response.cacheResponse() != null) {
+            revalidations.incrementAndGet();
+        } else if (response.networkResponse() != null) {
+            misses.incrementAndGet();
+        }
+        if (response.networkResponse() != null && !cacheControl.noStore()) {
+            put(key, response);
+        }
+        return response;
+    }
+
+    /**
+     * 内存缓存键，地址和Authorization相同才返回同一缓存
+     *
+     * @param request 请求
+     * @return
+     */
+    protected String key(okhttp3.Request request) {
+        String authorization = request.header(Header.AUTHORIZATION);
+        if (authorization == null) {
+            return request.url().toString();
+        }
+        return request.url() + "\n" + Header.AUTHORIZATION + ": " + authorization;
+    }
+
+    /**
+     * @param request 请求
+     * @return 过期可用窗口 - 单位秒
+     */
+    protected int staleWhileRevalidate(okhttp3.Request request) {
+        String value = request.header(Api.STALE_WHILE_REVALIDATE);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 在原缓存控制上设置max-stale
+     *
+     * @param cacheControl 原缓存控制
+     * @param maxStale     过期可用时间 - 单位秒
+     * @return
+     */
+    private CacheControl maxStale(CacheControl cacheControl, int maxStale) {
+        CacheControl.Builder builder = new CacheControl.Builder();
+        if (cacheControl.maxAgeSeconds() != -1) {
+            builder.maxAge(cacheControl.maxAgeSeconds(), TimeUnit.SECONDS);
+        }
+        if (cacheControl.minFreshSeconds() != -1) {
+            builder.minFresh(cacheControl.minFreshSeconds(), TimeUnit.SECONDS);
+        }
+        if (cacheControl.onlyIfCached()) {
+            builder.onlyIfCached();
+        }
+        if (cacheControl.noTransform()) {
+            builder.noTransform();
+        }
+        builder.maxStale(maxStale, TimeUnit.SECONDS);
+        return builder.build();
+    }
+
+    /**
+     * @param response 磁盘缓存响应
+     * @return 是否是过期响应
+     */
+    private boolean isStale(okhttp3.Response response) {
+        for (String warning : response.headers("Warning")) {
+            if (warning.startsWith(WARNING_STALE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 后台刷新，同一缓存键同时只刷新一次
+     *
+     * @param request 请求
+     */
+    protected void refresh(okhttp3.Request request) {
+        final String key = key(request);
+        Configure configure = Configure.Config();
+        if (configure == null || !refreshing.add(key)) {
+            return;
+        }
+        refreshes.incrementAndGet();
+        OkHttpClient client = configure.isSingleton() && configure.getHttpClient() != null ? configure.getHttpClient() : configure.clientRegistry().client();
+        okhttp3.Request refresh = request.newBuilder().cacheControl(CacheControl.FORCE_NETWORK).build();
+        client.newCall(refresh).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                refreshing.remove(key);
+                ApiLog.i(TAG, "refresh failed: " + key + " , " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, okhttp3.Response response) throws IOException {
+                refreshing.remove(key);
+                //读取完成后磁盘缓存才写入
+                response.body().bytes();
+                response.close();
+            }
+        });
+    }
+
+    /**
+     * @param key 缓存键
+     * @return 内存缓存项
+     */
+    private synchronized Entry get(String key) {
+        return maxSize <= 0 ? null : entries.get(key);
+    }
+
+    /**
+     * 保存到内存缓存，只保存有max-age、没有Vary且不超过单个最大大小的成功响应；<br/>
+     * 只预读响应内容到缓冲区，不消耗响应流
+     *
+     * @param key      缓存键
+     * @param response 响应
+     * @throws IOException
+     */
+    private void put(String key, okhttp3.Response response) throws IOException {
+        long maxEntrySize;
+        synchronized (this) {
+            if (maxSize <= 0) {
+                return;
+            }
+            maxEntrySize = this.maxEntrySize;
+        }
+        CacheControl cacheControl = response.cacheControl();
+        if (response.code() != 200 || cacheControl.noStore() || cacheControl.noCache() || cacheControl.maxAgeSeconds() <= 0 || hasVary(response)) {
+            remove(key);
+            return;
+        }
+        ResponseBody body = response.body();
+        if (body == null || body.contentLength() > maxEntrySize) {
+            remove(key);
+            return;
+        }
+        BufferedSource source = body.source();
+        if (source.request(maxEntrySize + 1)) {
+            remove(key);
+            return;
+        }
+        byte[] bytes = source.buffer().clone().readByteArray();
+        Entry entry = new Entry(response, bytes, TimeUnit.SECONDS.toMillis(cacheControl.maxAgeSeconds()));
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                size -= previous.body.length;
+            }
+            size += bytes.length;
+            trim();
+        }
+    }
+
+    /**
+     * @param response 响应
+     * @return 是否按请求头区分响应（Vary），Accept-Encoding除外
+     */
+    private boolean hasVary(okhttp3.Response response) {
+        for (String vary : response.headers("Vary")) {
+            for (String name : vary.split(",")) {
+                name = name.trim();
+                if (name.length() > 0 && !name.equalsIgnoreCase(VARY_ACCEPT_ENCODING)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 移除内存缓存
+     *
+     * @param key 缓存键
+     */
+    private synchronized void remove(String key) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            size -= previous.body.length;
+        }
+    }
+
+    /**
+     * 淘汰最久未使用的响应直到不超过容量
+     */
+    private void trim() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (size > Math.max(0, maxSize) && iterator.hasNext()) {
+            size -= iterator.next().getValue().body.length;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 统计信息
+     *
+     * @param cache 磁盘缓存，可为空
+     * @return
+     */
+    public String stats(Cache cache) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("memory: ").append(memoryHitCount());
+        builder.append(" , disk: ").append(diskHitCount());
+        builder.append(" , stale: ").append(staleHitCount());
+        builder.append(" , revalidate: ").append(revalidateCount());
+        builder.append(" , miss: ").append(missCount());
+        builder.append(" , refresh: ").append(refreshCount());
+        builder.append(" , memorySize: ").append(size());
+        if (cache != null) {
+            try {
+                builder.append(" , diskSize: ").append(cache.size());
+            } catch (IOException e) {
+                ApiLog.i(TAG, e.getMessage());
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 内存缓存项
+     */
+    private static class Entry {
+
+        final Protocol protocol;
+        final int code;
+        final String message;
+        final Headers headers;
+        final MediaType contentType;
+        final byte[] body;
+        final long receivedAt;
+        final long maxAge;
+
+        Entry(okhttp3.Response response, byte[] body, long maxAge) {
+            this.protocol = response.protocol();
+            this.code = response.code();
+            this.message = response.message();
+            this.headers = response.headers();
+            this.contentType = response.body().contentType();
+            this.body = body;
+            this.receivedAt = response.receivedResponseAtMillis();
+            this.maxAge = maxAge;
+        }
+
+        /**
+         * @param request 请求
+         * @param stale   是否过期
+         * @return 内存缓存响应
+         */
+        okhttp3.Response response(okhttp3.Request request, boolean stale) {
+            long now = System.currentTimeMillis();
+            okhttp3.Response.Builder builder = new okhttp3.Response.Builder()
+                    .request(request)
+                    .protocol(protocol)
+                    .code(code)
+                    .message(message)
+                    .headers(headers)
+                    .body(ResponseBody.create(contentType, body))
+                    .sentRequestAtMillis(now)
+                    .receivedResponseAtMillis(now);
+            if (stale) {
+                builder.addHeader("Warning", WARNING_STALE + " OkApi \"Response is stale\"");
+            }
+            return builder.build();
+        }
+
+    }
+
+}
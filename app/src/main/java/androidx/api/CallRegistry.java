@@ -0,0 +1,147 @@
+package androidx.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+
+/**
+ * 运行中的请求<br/>
+ * 按请求标识索引，请求完成后由{@link OkCallback}移除，按标识取消只遍历该标识下的请求；<br/>
+ * 添加、移除只锁定对应标识的集合，取消和遍历不加锁。<br/>
+ */
+public class CallRegistry {
+
+    /**
+     * 无标识请求的索引
+     */
+    private static final String NO_TAG = "";
+    /**
+     * 标识 - 请求
+     */
+    private final Map<String, Set<Call>> calls = new ConcurrentHashMap<>();
+    /**
+     * 请求个数
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * 获取请求标识
+     *
+     * @param call 请求
+     * @return
+     */
+    protected String tag(Call call) {
+        Object tag = call.request().tag();
+        return tag == null ? NO_TAG : String.valueOf(tag);
+    }
+
+    /**
+     * 添加请求，需要在请求加入调度之前添加
+     *
+     * @param call 请求
+     */
+    public void add(Call call) {
+        String tag = tag(call);
+        while (true) {
+            Set<Call> set = calls.get(tag);
+            if (set == null) {
+                Set<Call> created = Collections.newSetFromMap(new ConcurrentHashMap<Call, Boolean>());
+                set = calls.putIfAbsent(tag, created);
+                if (set == null) {
+                    set = created;
+                }
+            }
+            synchronized (set) {
+                //集合已被remove()清理，重新获取
+                if (calls.get(tag) != set) {
+                    continue;
+                }
+                if (set.add(call)) {
+                    size.incrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 移除请求
+     *
+     * @param call 请求
+     */
+    public void remove(Call call) {
+        String tag = tag(call);
+        Set<Call> set = calls.get(tag);
+        if (set == null) {
+            return;
+        }
+        synchronized (set) {
+            if (set.remove(call)) {
+                size.decrementAndGet();
+                if (set.isEmpty()) {
+                    calls.remove(tag, set);
+                }
+            }
+        }
+    }
+
+    /**
+     * 取消标识下的请求
+     *
+     * @param tag 标识
+     */
+    public void cancel(String tag) {
+        Set<Call> set = calls.get(tag == null ? NO_TAG : tag);
+        if (set == null) {
+            return;
+        }
+        for (Call call : set) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * 取消所有请求
+     */
+    public void cancelAll() {
+        for (Set<Call> set : calls.values()) {
+            for (Call call : set) {
+                call.cancel();
+            }
+        }
+    }
+
+    /**
+     * @return 运行中的请求个数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @param tag 标识
+     * @return 标识下运行中的请求个数
+     */
+    public int size(String tag) {
+        Set<Call> set = calls.get(tag == null ? NO_TAG : tag);
+        return set == null ? 0 : set.size();
+    }
+
+    /**
+     * @return 运行中的请求快照
+     */
+    public List<Call> calls() {
+        List<Call> list = new ArrayList<>();
+        for (Set<Call> set : calls.values()) {
+            list.addAll(set);
+        }
+        return list;
+    }
+
+}
@@ -0,0 +1,219 @@
+package androidx.api;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 类绑定信息<br/>
+ * 每个类只解析一次：字段（含父类）、名称 - 字段、集合字段泛型参数类、无参构造函数，<br/>
+ * 供{@link JSON}、{@link JSONStream}解析和序列化时复用，避免每个键都遍历类结构。<br/>
+ */
+public final class ClassBinding {
+
+    /**
+     * 类 - 绑定信息
+     */
+    private static final Map<Class<?>, ClassBinding> bindings = new ConcurrentHashMap<>();
+    /**
+     * 类
+     */
+    private final Class<?> clazz;
+    /**
+     * 当前类及其父类声明字段
+     */
+    private final Field[] fields;
+    /**
+     * 字段名称 - 字段属性
+     */
+    private final Map<String, Property> properties;
+    /**
+     * 无参构造函数
+     */
+    private final Constructor<?> constructor;
+    /**
+     * 是否没有声明构造函数
+     */
+    private final boolean noConstructor;
+
+    private ClassBinding(Class<?> clazz) {
+        this.clazz = clazz;
+        List<Field> list = new ArrayList<>();
+        Class<?> cls = clazz;
+        while (cls != null) {
+            for (Field field : cls.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                    field.setAccessible(true);
+                    list.add(field);
+                }
+            }
+            cls = cls.getSuperclass();
+        }
+        fields = list.toArray(new Field[list.size()]);
+        Map<String, Property> map = new HashMap<>();
+        for (Field field : fields) {
+            if (!map.containsKey(field.getName())) {
+                map.put(field.getName(), new Property(field));
+            }
+        }
+        properties = Collections.unmodifiableMap(map);
+        Constructor<?>[] constructors = clazz.getDeclaredConstructors();
+        Constructor<?> noArgs = null;
+        for (Constructor<?> item : constructors) {
+            if (item.getParameterTypes().length == 0) {
+                noArgs = item;
+            }
+        }
+        if (noArgs != null) {
+            noArgs.setAccessible(true);
+        }
+        constructor = noArgs;
+        noConstructor = constructors.length == 0;
+    }
+
+    /**
+     * 获取类绑定信息，线程安全，每个类只创建一次
+     *
+     * @param clazz 类
+     * @return
+     */
+    public static ClassBinding of(Class<?> clazz) {
+        ClassBinding binding = bindings.get(clazz);
+        if (binding == null) {
+            ClassBinding created = new ClassBinding(clazz);
+            binding = bindings.putIfAbsent(clazz, created);
+            if (binding == null) {
+                binding = created;
+            }
+        }
+        return binding;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clear() {
+        bindings.clear();
+    }
+
+    /**
+     * @return 类
+     */
+    public Class<?> type() {
+        return clazz;
+    }
+
+    /**
+     * @return 当前类及其父类声明字段（已设置可访问，不可修改）
+     */
+    public Field[] fields() {
+        return fields;
+    }
+
+    /**
+     * @return 字段名称 - 字段属性
+     */
+    public Map<String, Property> properties() {
+        return properties;
+    }
+
+    /**
+     * @param name 字段名称
+     * @return 字段属性
+     */
+    public Property property(String name) {
+        return name == null ? null : properties.get(name);
+    }
+
+    /**
+     * @param name 字段名称
+     * @return 字段
+     */
+    public Field field(String name) {
+        Property property = property(name);
+        return property == null ? null : property.field;
+    }
+
+    /**
+     * 创建实例
+     *
+     * @return
+     */
+    public Object newInstance() {
+        try {
+            if (noConstructor) {
+                return clazz.newInstance();
+            }
+            if (constructor != null) {
+                return constructor.newInstance();
+            }
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(e);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        } catch (InstantiationException e) {
+            throw new RuntimeException(e);
+        }
+        return null;
+    }
+
+    /**
+     * 字段属性
+     */
+    public static final class Property {
+
+        /**
+         * 字段
+         */
+        public final Field field;
+        /**
+         * 字段类型
+         */
+        public final Class<?> type;
+        /**
+         * 是否泛型占位符字段
+         */
+        public final boolean typeVariable;
+        /**
+         * 是否基础数据类型
+         */
+        public final boolean primitive;
+        /**
+         * 集合字段泛型参数类，非集合或无法解析时为空
+         */
+        public final Class<?> parameterType;
+
+        Property(Field field) {
+            JSON json = JSON.acquire();
+            this.field = field;
+            this.type = field.getType();
+            this.typeVariable = field.getGenericType() instanceof TypeVariable;
+            this.primitive = json.isPrimitive(type);
+            Class<?> parameter = null;
+            if (Collection.class.isAssignableFrom(type)) {
+                try {
+                    Type[] arguments = json.getGenericParameterType(field);
+                    if (arguments.length > 0) {
+                        parameter = json.getGenericParameterClass(arguments[0]);
+                    }
+                } catch (RuntimeException e) {
+                    parameter = null;
+                }
+            }
+            this.parameterType = parameter;
+        }
+
+    }
+
+}
@@ -0,0 +1,142 @@
+package androidx.api;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.internal.platform.Platform;
+
+/**
+ * 客户端注册表<br/>
+ * 每个配置版本只构建一个OkHttpClient，配置参数变更后才重新构建；<br/>
+ * 单个请求需要不同参数时通过{@link #newBuilder()}派生，派生客户端共享连接池和调度器。<br/>
+ */
+public class ClientRegistry {
+
+    public static final String TAG = ClientRegistry.class.getSimpleName();
+    /**
+     * 配置
+     */
+    private final Configure configure;
+    /**
+     * 当前客户端
+     */
+    private volatile Entry entry;
+    /**
+     * 客户端构建次数
+     */
+    private final AtomicLong buildCount = new AtomicLong();
+
+    /**
+     * 构造函数
+     *
+     * @param configure 配置
+     */
+    public ClientRegistry(Configure configure) {
+        this.configure = configure;
+    }
+
+    /**
+     * 获取客户端，配置版本未变化时复用已构建的客户端
+     *
+     * @return 客户端
+     */
+    public OkHttpClient client() {
+        Entry current = entry;
+        if (current != null && current.revision == configure.revision()) {
+            return current.client;
+        }
+        synchronized (this) {
+            int revision = configure.revision();
+            current = entry;
+            if (current == null || current.revision != revision) {
+                current = new Entry(build(configure), revision);
+                entry = current;
+                buildCount.incrementAndGet();
+                ApiLog.i(TAG, "build client, revision: " + revision + " , count: " + buildCount.get());
+            }
+            return current.client;
+        }
+    }
+
+    /**
+     * 派生客户端构建者，构建出的客户端与共享客户端使用同一连接池和调度器
+     *
+     * @return 客户端构建者
+     */
+    public OkHttpClient.Builder newBuilder() {
+        return client().newBuilder();
+    }
+
+    /**
+     * @return 客户端构建次数
+     */
+    public long buildCount() {
+        return buildCount.get();
+    }
+
+    /**
+     * 构建客户端
+     *
+     * @param config 配置
+     * @return 客户端
+     */
+    protected OkHttpClient build(Configure config) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        builder.protocols(config.protocols());
+        builder.connectTimeout(config.connectTimeout(), TimeUnit.SECONDS);
+        builder.readTimeout(config.readTimeout(), TimeUnit.SECONDS);
+        builder.writeTimeout(config.writeTimeout(), TimeUnit.SECONDS);
+        builder.connectionPool(config.connectionPool());
+        builder.cookieJar(config.cookieJar());
+        builder.dispatcher(config.dispatcher());
+        builder.addInterceptor(config.dispatchInterceptor());
+        builder.addInterceptor(config.connectionInterceptor());
+        List<Interceptor> interceptors = config.interceptors();
+        int interceptorSize = interceptors == null ? 0 : interceptors.size();
+        for (int i = 0; i < interceptorSize; i++) {
+            builder.addInterceptor(interceptors.get(i));
+        }
+        if (config.cacheInterceptor() != null) {
+            builder.addInterceptor(config.cacheInterceptor());
+        }
+        if (config.cache() != null) {
+            builder.cache(config.cache());
+        }
+        builder.addNetworkInterceptor(config.connectionInterceptor());
+        builder.retryOnConnectionFailure(config.isRetryOnConnectionFailure());
+        builder.sslSocketFactory(config.socketFactory(), Platform.get().trustManager(config.socketFactory()));
+        builder.hostnameVerifier(config.hostnameVerifier());
+        return builder.build();
+    }
+
+    /**
+     * 资源释放，丢弃当前客户端并关闭空闲连接
+     */
+    public void release() {
+        synchronized (this) {
+            entry = null;
+        }
+        if (configure.connectionPool() != null) {
+            configure.connectionPool().evictAll();
+        }
+    }
+
+    /**
+     * 客户端及其对应的配置版本
+     */
+    private static class Entry {
+
+        final OkHttpClient client;
+        final int revision;
+
+        Entry(OkHttpClient client, int revision) {
+            this.client = client;
+            this.revision = revision;
+        }
+
+    }
+
+}
@@ -4,18 +4,28 @@ import android.content.Context;
 
 import androidx.annotation.RawRes;
 
+import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.X509TrustManager;
 
+import okhttp3.Cache;
 import okhttp3.CacheControl;
 import okhttp3.ConnectionPool;
 import okhttp3.CookieJar;
@@ -30,6 +40,10 @@ import okhttp3.Protocol;
 public class Configure {
 
     public static final String TAG = Configure.class.getSimpleName();
+    /**
+     * HTTP/2模式下单主机最大并发请求数
+     */
+    public static final int HTTP2_MAX_REQUESTS_PER_HOST = 64;
     /**
      * 配置对象
      */
@@ -62,6 +76,10 @@ public class Configure {
      * 协议
      */
     private List<Protocol> protocols;
+    /**
+     * 开启HTTP/2前的单主机并发数，关闭时恢复，0为未调整
+     */
+    private int http1MaxRequestsPerHost;
     /**
      * 连接超时 - 单位秒
      */
@@ -86,6 +104,18 @@ public class Configure {
      * 保活时间 - 单位秒
      */
     private int keepAliveDuration = 10;
+    /**
+     * 是否保持连接
+     */
+    private boolean keepAlive = true;
+    /**
+     * 关闭连接的主机
+     */
+    private Set<String> closeHosts;
+    /**
+     * 连接拦截器
+     */
+    private ConnectionInterceptor connectionInterceptor;
     /**
      * Cookie管理
      */
@@ -94,6 +124,18 @@ public class Configure {
      * 调度器
      */
     private Dispatcher dispatcher;
+    /**
+     * 主机并发调度
+     */
+    private HostDispatcher hostDispatcher;
+    /**
+     * 调度拦截器（排队、执行耗时统计）
+     */
+    private DispatchInterceptor dispatchInterceptor;
+    /**
+     * 同步请求统计
+     */
+    private ExecuteStats executeStats;
     /**
      * 拦截器
      */
@@ -126,6 +168,22 @@ public class Configure {
      * 缓存控制
      */
     private CacheControl cacheControl;
+    /**
+     * 磁盘缓存
+     */
+    private Cache cache;
+    /**
+     * 缓存拦截器（内存热缓存、过期可用、统计）
+     */
+    private CacheInterceptor cacheInterceptor;
+    /**
+     * 是否合并相同的进行中GET请求
+     */
+    private boolean singleFlight;
+    /**
+     * 回调投递策略
+     */
+    private Delivery delivery;
     /**
      * 客户端
      */
@@ -138,6 +196,22 @@ public class Configure {
      * 拦截器缓存个数
      */
     private int interceptorCacheSize = 50;
+    /**
+     * 上传、下载进度投递间隔 - 单位毫秒
+     */
+    private long progressInterval = ProgressDispatcher.DEFAULT_INTERVAL;
+    /**
+     * 上传、下载进度投递百分比步长（0-100）
+     */
+    private float progressStep;
+    /**
+     * 配置版本，影响客户端构建的参数变更后递增
+     */
+    private final AtomicInteger revision = new AtomicInteger();
+    /**
+     * 客户端注册表
+     */
+    private ClientRegistry clientRegistry;
 
     /**
      * 构造参数
@@ -160,7 +234,12 @@ public class Configure {
         singleton = false;
         protocols = Collections.singletonList(Protocol.HTTP_1_1);
         connectionPool = new ConnectionPool(maxIdleConnections, keepAliveDuration, TimeUnit.SECONDS);
+        closeHosts = new HashSet<>();
+        connectionInterceptor = new ConnectionInterceptor();
         dispatcher = new Dispatcher();
+        hostDispatcher = new HostDispatcher(this);
+        dispatchInterceptor = new DispatchInterceptor();
+        executeStats = new ExecuteStats();
         interceptors = new ArrayList<>();
         cookieJar = new OkCookieJar(context);
         interceptors.add(new LogInterceptor());
@@ -171,7 +250,9 @@ public class Configure {
         hostnameVerifier = new HttpsHostnameVerifier();
         escapeJar = new OkEscapeJar();
         cacheControl = CacheControl.FORCE_NETWORK;
+        cacheInterceptor = new CacheInterceptor();
         contentType = Api.JSON;
+        clientRegistry = new ClientRegistry(this);
     }
 
     /**
@@ -242,6 +323,28 @@ public class Configure {
         return client;
     }
 
+    /**
+     * @return 客户端注册表
+     */
+    public ClientRegistry clientRegistry() {
+        return clientRegistry;
+    }
+
+    /**
+     * @return 配置版本
+     */
+    public int revision() {
+        return revision.get();
+    }
+
+    /**
+     * 配置变更，下次获取客户端时重新构建<br/>
+     * 直接修改{@link #interceptors()}返回的列表后需要手动调用
+     */
+    public void changed() {
+        revision.incrementAndGet();
+    }
+
     /**
      * 是否是调试模式
      *
@@ -329,9 +432,54 @@ public class Configure {
      */
     public Configure protocols(List<Protocol> protocols) {
         this.protocols = protocols;
+        changed();
+        return this;
+    }
+
+    /**
+     * 是否优先HTTP/2
+     *
+     * @return
+     */
+    public boolean isHttp2() {
+        return protocols != null && protocols.contains(Protocol.HTTP_2);
+    }
+
+    /**
+     * 设置HTTP/2优先模式，https主机通过ALPN协商HTTP/2，同一主机的并发请求复用一个连接；<br/>
+     * 开启后调度器单主机并发数至少为{@link #HTTP2_MAX_REQUESTS_PER_HOST}，避免多路复用被调度器限制，<br/>
+     * 关闭时恢复开启前的单主机并发数（期间通过{@link #maxRequestsPerHost(int)}修改过时保留修改后的值）。
+     *
+     * @param http2 是否优先HTTP/2
+     */
+    public Configure http2(boolean http2) {
+        if (http2) {
+            protocols = Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1);
+            if (maxRequestsPerHost() < HTTP2_MAX_REQUESTS_PER_HOST) {
+                http1MaxRequestsPerHost = maxRequestsPerHost();
+                maxRequestsPerHost(HTTP2_MAX_REQUESTS_PER_HOST);
+            }
+        } else {
+            protocols = Collections.singletonList(Protocol.HTTP_1_1);
+            if (http1MaxRequestsPerHost > 0 && maxRequestsPerHost() == HTTP2_MAX_REQUESTS_PER_HOST) {
+                maxRequestsPerHost(http1MaxRequestsPerHost);
+            }
+            http1MaxRequestsPerHost = 0;
+        }
+        changed();
         return this;
     }
 
+    /**
+     * 获取主机统计（协商协议、单连接流数、获取连接耗时）
+     *
+     * @param host 主机
+     * @return
+     */
+    public HostStats hostStats(String host) {
+        return connectionInterceptor.hostStats(host);
+    }
+
     /**
      * 获取超时 - 单位秒
      *
@@ -348,6 +496,7 @@ public class Configure {
      */
     public Configure connectTimeout(long connectTimeout) {
         this.connectTimeout = connectTimeout;
+        changed();
         return this;
     }
 
@@ -367,6 +516,7 @@ public class Configure {
      */
     public Configure readTimeout(long readTimeout) {
         this.readTimeout = readTimeout;
+        changed();
         return this;
     }
 
@@ -386,6 +536,7 @@ public class Configure {
      */
     public Configure writeTimeout(long writeTimeout) {
         this.writeTimeout = writeTimeout;
+        changed();
         return this;
     }
 
@@ -405,6 +556,7 @@ public class Configure {
      */
     public Configure connectionPool(ConnectionPool connectionPool) {
         this.connectionPool = connectionPool;
+        changed();
         return this;
     }
 
@@ -424,6 +576,7 @@ public class Configure {
      */
     public Configure cookieJar(CookieJar cookieJar) {
         this.cookieJar = cookieJar;
+        changed();
         return this;
     }
 
@@ -443,9 +596,144 @@ public class Configure {
      */
     public Configure dispatcher(Dispatcher dispatcher) {
         this.dispatcher = dispatcher;
+        hostDispatcher.maxRequestsPerHost(dispatcher.getMaxRequestsPerHost());
+        changed();
+        return this;
+    }
+
+    /**
+     * @return 最大并发请求数
+     */
+    public int maxRequests() {
+        return dispatcher.getMaxRequests();
+    }
+
+    /**
+     * 设置最大并发请求数，默认64
+     *
+     * @param maxRequests 并发数
+     * @return
+     */
+    public Configure maxRequests(int maxRequests) {
+        dispatcher.setMaxRequests(maxRequests);
+        return this;
+    }
+
+    /**
+     * @return 默认单主机最大并发请求数
+     */
+    public int maxRequestsPerHost() {
+        return hostDispatcher.maxRequestsPerHost();
+    }
+
+    /**
+     * 设置默认单主机最大并发请求数，默认5
+     *
+     * @param maxRequestsPerHost 并发数
+     * @return
+     */
+    public Configure maxRequestsPerHost(int maxRequestsPerHost) {
+        hostDispatcher.maxRequestsPerHost(maxRequestsPerHost);
+        return this;
+    }
+
+    /**
+     * @param host 主机
+     * @return 主机最大并发请求数
+     */
+    public int maxRequestsPerHost(String host) {
+        return hostDispatcher.maxRequestsPerHost(host);
+    }
+
+    /**
+     * 设置主机单独的最大并发请求数，同一主机的突发请求可以单独放宽或收紧，见{@link HostDispatcher}
+     *
+     * @param host               主机
+     * @param maxRequestsPerHost 并发数，小于等于0时移除单独设置
+     * @return
+     */
+    public Configure maxRequestsPerHost(String host, int maxRequestsPerHost) {
+        hostDispatcher.maxRequestsPerHost(host, maxRequestsPerHost);
+        return this;
+    }
+
+    /**
+     * 设置调度器线程池，保留当前并发数设置，已进行的请求在原线程池完成
+     *
+     * @param executor 线程池
+     * @return
+     */
+    public Configure executor(ExecutorService executor) {
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(this.dispatcher.getMaxRequests());
+        this.dispatcher = dispatcher;
+        hostDispatcher.apply(dispatcher);
+        changed();
         return this;
     }
 
+    /**
+     * 设置固定线程数的调度器线程池，线程空闲60秒后回收；<br/>
+     * 线程数小于最大并发请求数时，超出的请求在线程池队列中等待，计入排队耗时
+     *
+     * @param threads 线程数
+     * @return
+     */
+    public Configure executor(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "OkApi Dispatcher " + count.incrementAndGet());
+                thread.setDaemon(false);
+                return thread;
+            }
+
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor(executor);
+    }
+
+    /**
+     * @return 主机并发调度
+     */
+    public HostDispatcher hostDispatcher() {
+        return hostDispatcher;
+    }
+
+    /**
+     * @return 调度拦截器
+     */
+    public DispatchInterceptor dispatchInterceptor() {
+        return dispatchInterceptor;
+    }
+
+    /**
+     * @return 全部请求的排队、执行耗时统计
+     */
+    public DispatchStats dispatchStats() {
+        return dispatchInterceptor.dispatchStats();
+    }
+
+    /**
+     * 获取主机的排队、执行耗时统计
+     *
+     * @param host 主机
+     * @return
+     */
+    public DispatchStats dispatchStats(String host) {
+        return dispatchInterceptor.dispatchStats(host);
+    }
+
+    /**
+     * @return 同步请求（{@link OkApi#execute(Context, int, String, RequestParams)}）统计
+     */
+    public ExecuteStats executeStats() {
+        return executeStats;
+    }
+
     /**
      * 获取拦截器
      *
@@ -462,6 +750,7 @@ public class Configure {
      */
     public Configure interceptors(List<Interceptor> interceptors) {
         this.interceptors = interceptors;
+        changed();
         return this;
     }
 
@@ -472,6 +761,7 @@ public class Configure {
      */
     public Configure addInterceptor(Interceptor interceptor) {
         interceptors.add(interceptor);
+        changed();
         return this;
     }
 
@@ -491,6 +781,7 @@ public class Configure {
      */
     public Configure retryOnConnectionFailure(boolean retryOnConnectionFailure) {
         this.retryOnConnectionFailure = retryOnConnectionFailure;
+        changed();
         return this;
     }
 
@@ -510,6 +801,7 @@ public class Configure {
      */
     public Configure socketFactory(SSLSocketFactory socketFactory) {
         this.socketFactory = socketFactory;
+        changed();
         return this;
     }
 
@@ -548,6 +840,7 @@ public class Configure {
      */
     public Configure hostnameVerifier(HostnameVerifier hostnameVerifier) {
         this.hostnameVerifier = hostnameVerifier;
+        changed();
         return this;
     }
 
@@ -587,6 +880,7 @@ public class Configure {
     public Configure maxIdleConnections(int maxIdleConnections) {
         this.maxIdleConnections = maxIdleConnections;
         connectionPool = new ConnectionPool(maxIdleConnections, keepAliveDuration, TimeUnit.SECONDS);
+        changed();
         return this;
     }
 
@@ -607,9 +901,65 @@ public class Configure {
     public Configure keepAliveDuration(int keepAliveDuration) {
         this.keepAliveDuration = keepAliveDuration;
         connectionPool = new ConnectionPool(maxIdleConnections, keepAliveDuration, TimeUnit.SECONDS);
+        changed();
+        return this;
+    }
+
+    /**
+     * 是否保持连接
+     *
+     * @return
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * 主机是否保持连接
+     *
+     * @param host 主机
+     * @return
+     */
+    public boolean isKeepAlive(String host) {
+        if (!keepAlive) {
+            return false;
+        }
+        synchronized (closeHosts) {
+            return !closeHosts.contains(host);
+        }
+    }
+
+    /**
+     * 设置是否保持连接，false:所有请求添加Connection: close
+     *
+     * @param keepAlive
+     */
+    public Configure keepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
         return this;
     }
 
+    /**
+     * 添加关闭连接的主机，该主机请求添加Connection: close
+     *
+     * @param host 主机，例如：www.example.com
+     */
+    public Configure closeHost(String host) {
+        synchronized (closeHosts) {
+            closeHosts.add(host);
+        }
+        return this;
+    }
+
+    /**
+     * 获取连接拦截器（连接池命中统计）
+     *
+     * @return
+     */
+    public ConnectionInterceptor connectionInterceptor() {
+        return connectionInterceptor;
+    }
+
     /**
      * 获取请求证书
      *
@@ -629,6 +979,7 @@ public class Configure {
         x509TrustManager = new HttpsX509TrustManager();
         hostnameVerifier = new HttpsHostnameVerifier();
         this.requestCert = requestCert;
+        changed();
         return this;
     }
 
@@ -640,6 +991,7 @@ public class Configure {
      */
     public Configure cert(String alias, @RawRes int resId) {
         requestCert.add(getContext(), alias, resId).build();
+        changed();
         return this;
     }
 
@@ -652,6 +1004,7 @@ public class Configure {
      */
     public Configure cert(String alias, @RawRes int resId, String password) {
         requestCert.password(password).add(getContext(), alias, resId).build();
+        changed();
         return this;
     }
 
@@ -663,6 +1016,7 @@ public class Configure {
      */
     public Configure cert(String alias, String filename) {
         requestCert.add(getContext(), alias, filename).build();
+        changed();
         return this;
     }
 
@@ -675,6 +1029,7 @@ public class Configure {
      */
     public Configure cert(String alias, String filename, String password) {
         requestCert.password(password).add(getContext(), alias, filename).build();
+        changed();
         return this;
     }
 
@@ -687,6 +1042,7 @@ public class Configure {
      */
     public Configure cert(String alias, InputStream stream, String password) {
         requestCert.password(password).add(alias, stream).build();
+        changed();
         return this;
     }
 
@@ -701,6 +1057,7 @@ public class Configure {
      */
     public Configure cert(String alias, String filename, String protocol, String type, String provider, String password) {
         requestCert.protocol(protocol).type(type).provider(provider).password(password).add(getContext(), alias, filename).build();
+        changed();
         return this;
     }
 
@@ -715,6 +1072,7 @@ public class Configure {
      */
     public Configure cert(String alias, InputStream stream, String protocol, String type, String provider, String password) {
         requestCert.protocol(protocol).type(type).provider(provider).password(password).add(alias, stream).build();
+        changed();
         return this;
     }
 
@@ -730,13 +1088,103 @@ public class Configure {
     /**
      * 设置缓存控制
      *
-     * @param cacheControl
+     * @param cacheControl 为空时按服务器缓存头处理
      */
     public Configure cacheControl(CacheControl cacheControl) {
         this.cacheControl = cacheControl;
         return this;
     }
 
+    /**
+     * @return 磁盘缓存，未设置时为空
+     */
+    public Cache cache() {
+        return cache;
+    }
+
+    /**
+     * 设置磁盘缓存（HTTP缓存），超出容量时按LRU淘汰；<br/>
+     * 缓存控制为默认的FORCE_NETWORK时改为按服务器缓存头处理，请求可通过{@link RequestParams#cacheControl(CacheControl)}单独设置
+     *
+     * @param directory 缓存目录
+     * @param maxSize   容量 - 字节
+     * @return
+     */
+    public Configure cache(File directory, long maxSize) {
+        this.cache = new Cache(directory, maxSize);
+        if (cacheControl == CacheControl.FORCE_NETWORK) {
+            cacheControl = null;
+        }
+        changed();
+        return this;
+    }
+
+    /**
+     * @return 缓存拦截器
+     */
+    public CacheInterceptor cacheInterceptor() {
+        return cacheInterceptor;
+    }
+
+    /**
+     * 设置内存热缓存容量，有max-age的小响应在新鲜期内直接从内存返回；<br/>
+     * 缓存控制为默认的FORCE_NETWORK时不会读取缓存，与{@link #cache(File, long)}一样改为按服务器缓存头处理
+     *
+     * @param maxSize 容量 - 字节，小于等于0不使用内存缓存
+     * @return
+     */
+    public Configure memoryCache(long maxSize) {
+        cacheInterceptor.maxSize(maxSize);
+        if (maxSize > 0 && cacheControl == CacheControl.FORCE_NETWORK) {
+            cacheControl = null;
+        }
+        return this;
+    }
+
+    /**
+     * @return 缓存统计（内存命中、磁盘命中、过期返回、验证、未命中、后台刷新）
+     */
+    public String cacheStats() {
+        return cacheInterceptor.stats(cache);
+    }
+
+    /**
+     * @return 是否合并相同的进行中GET请求
+     */
+    public boolean isSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * 设置是否合并相同的进行中GET请求，请求可通过{@link RequestParams#singleFlight(boolean)}单独设置
+     *
+     * @param singleFlight 是否合并
+     * @return
+     */
+    public Configure singleFlight(boolean singleFlight) {
+        this.singleFlight = singleFlight;
+        return this;
+    }
+
+    /**
+     * @return 回调投递策略，未设置时为主线程投递
+     */
+    public Delivery delivery() {
+        return delivery == null ? Delivery.main() : delivery;
+    }
+
+    /**
+     * 设置回调投递策略，请求可通过{@link RequestParams#delivery(Delivery)}单独设置；<br/>
+     * 非主线程投递时监听中不能直接更新界面
+     *
+     * @param delivery 投递策略{@link Delivery#main()}、{@link Delivery#executor(java.util.concurrent.Executor)}、{@link Delivery#direct()}
+     * @return
+     */
+    public Configure delivery(Delivery delivery) {
+        this.delivery = delivery;
+        return this;
+    }
+
     /**
      * @return 是否拦截器缓存
      */
@@ -773,5 +1221,40 @@ public class Configure {
         return this;
     }
 
+    /**
+     * @return 上传、下载进度投递间隔 - 单位毫秒
+     */
+    public long progressInterval() {
+        return progressInterval;
+    }
+
+    /**
+     * 设置上传、下载进度投递间隔，间隔内的进度合并为一次回调，完成进度始终回调
+     *
+     * @param progressInterval 间隔 - 单位毫秒，小于等于0不按时间合并
+     * @return
+     */
+    public Configure progressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+        return this;
+    }
+
+    /**
+     * @return 上传、下载进度投递百分比步长
+     */
+    public float progressStep() {
+        return progressStep;
+    }
+
+    /**
+     * 设置上传、下载进度投递百分比步长，进度增加达到步长时回调
+     *
+     * @param progressStep 步长（0-100），小于等于0不按百分比合并
+     * @return
+     */
+    public Configure progressStep(float progressStep) {
+        this.progressStep = progressStep;
+        return this;
+    }
 
 }
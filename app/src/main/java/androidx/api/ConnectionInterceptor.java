@@ -0,0 +1,147 @@
+package androidx.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+
+/**
+ * 连接拦截器<br/>
+ * 1.按{@link Configure#isKeepAlive(String)}策略对指定主机添加Connection: close<br/>
+ * 2.统计连接池命中（复用已有连接）与未命中（新建连接）次数<br/>
+ * 3.按主机统计协商协议、单连接流数以及获取连接耗时（应用拦截器开始到拿到连接，不含调度器排队，排队见{@link DispatchStats}）{@link HostStats}<br/>
+ * 同一实例需同时作为应用拦截器（记录开始时间）和网络拦截器添加，见{@link ClientRegistry}。<br/>
+ */
+public class ConnectionInterceptor implements Interceptor {
+
+    /**
+     * 已使用过的连接
+     */
+    private final Map<Connection, AtomicInteger> connections = Collections.synchronizedMap(new WeakHashMap<Connection, AtomicInteger>());
+    /**
+     * 主机统计
+     */
+    private final Map<String, HostStats> hostStats = new ConcurrentHashMap<>();
+    /**
+     * 应用拦截器开始时间
+     */
+    private final ThreadLocal<Long> startTime = new ThreadLocal<>();
+    /**
+     * 命中次数
+     */
+    private final AtomicLong hits = new AtomicLong();
+    /**
+     * 未命中次数
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    @Override
+    public okhttp3.Response intercept(Chain chain) throws IOException {
+        okhttp3.Request request = chain.request();
+        Connection connection = chain.connection();
+        if (connection == null) {
+            //应用拦截器
+            startTime.set(System.currentTimeMillis());
+            try {
+                return chain.proceed(request);
+            } finally {
+                startTime.remove();
+            }
+        }
+        //网络拦截器
+        Long start = startTime.get();
+        long delay = start == null ? -1 : System.currentTimeMillis() - start;
+        boolean newConnection = false;
+        AtomicInteger streams;
+        synchronized (connections) {
+            streams = connections.get(connection);
+            if (streams == null) {
+                streams = new AtomicInteger();
+                connections.put(connection, streams);
+                newConnection = true;
+            }
+        }
+        if (newConnection) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        String host = request.url().host();
+        int concurrent = streams.incrementAndGet();
+        hostStats(host).record(connection.protocol(), newConnection, concurrent, delay);
+        Configure config = Configure.Config();
+        if (config != null && !config.isKeepAlive(host)) {
+            request = request.newBuilder().header(Header.CONNECTION, "close").build();
+        }
+        try {
+            return chain.proceed(request);
+        } finally {
+            streams.decrementAndGet();
+        }
+    }
+
+    /**
+     * 获取主机统计
+     *
+     * @param host 主机
+     * @return
+     */
+    public HostStats hostStats(String host) {
+        HostStats stats = hostStats.get(host);
+        if (stats == null) {
+            HostStats created = new HostStats(host);
+            stats = hostStats.putIfAbsent(host, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @return 所有主机统计
+     */
+    public List<HostStats> hostStats() {
+        return new ArrayList<>(hostStats.values());
+    }
+
+    /**
+     * @return 连接池命中次数（复用连接）
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return 连接池未命中次数（新建连接）
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * @return 连接复用率
+     */
+    public double hitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    /**
+     * 重置统计
+     */
+    public void reset() {
+        hits.set(0);
+        misses.set(0);
+        hostStats.clear();
+    }
+
+}
@@ -0,0 +1,206 @@
+package androidx.api;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 回调投递策略<br/>
+ * {@link #main()}投递到主线程，{@link #executor(Executor)}投递到指定线程池，{@link #direct()}在请求线程直接回调；<br/>
+ * 通过{@link Configure#delivery(Delivery)}全局设置，{@link RequestParams#delivery(Delivery)}单个请求设置；<br/>
+ * 统计待投递个数（队列深度）和投递耗时（请求线程提交到开始回调）。
+ */
+public abstract class Delivery implements Executor {
+
+    public final static String TAG = Delivery.class.getSimpleName();
+
+    private static Delivery main;
+    private static Delivery direct;
+
+    /**
+     * 名称
+     */
+    private final String name;
+    /**
+     * 待投递个数
+     */
+    private final AtomicInteger depth = new AtomicInteger();
+    /**
+     * 最大待投递个数
+     */
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    /**
+     * 已投递个数
+     */
+    private final AtomicLong delivered = new AtomicLong();
+    /**
+     * 投递耗时
+     */
+    private final Histogram latency = new Histogram();
+
+    protected Delivery(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return 主线程投递
+     */
+    public static synchronized Delivery main() {
+        if (main == null) {
+            main = new HandlerDelivery("main", new Handler(Looper.getMainLooper()));
+        }
+        return main;
+    }
+
+    /**
+     * @return 请求线程直接回调，回调中不能更新界面，耗时操作会占用请求线程
+     */
+    public static synchronized Delivery direct() {
+        if (direct == null) {
+            direct = new Delivery("direct") {
+                @Override
+                protected void dispatch(Runnable runnable) {
+                    runnable.run();
+                }
+            };
+        }
+        return direct;
+    }
+
+    /**
+     * 投递到指定线程池，例如后台同步、数据库写入
+     *
+     * @param executor 线程池
+     * @return
+     */
+    public static Delivery executor(final Executor executor) {
+        return new Delivery("executor") {
+            @Override
+            protected void dispatch(Runnable runnable) {
+                executor.execute(runnable);
+            }
+        };
+    }
+
+    /**
+     * 投递到指定Handler所在线程
+     *
+     * @param handler Handler
+     * @return
+     */
+    public static Delivery handler(Handler handler) {
+        return new HandlerDelivery("handler", handler);
+    }
+
+    /**
+     * 提交到目标线程
+     *
+     * @param runnable 回调
+     */
+    protected abstract void dispatch(Runnable runnable);
+
+    @Override
+    public void execute(final Runnable runnable) {
+        final long time = SystemClock.elapsedRealtimeNanos();
+        int current = depth.incrementAndGet();
+        int max = maxDepth.get();
+        while (current > max && !maxDepth.compareAndSet(max, current)) {
+            max = maxDepth.get();
+        }
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                depth.decrementAndGet();
+                delivered.incrementAndGet();
+                latency.record(SystemClock.elapsedRealtimeNanos() - time);
+                runnable.run();
+            }
+        };
+        try {
+            dispatch(task);
+        } catch (RejectedExecutionException e) {
+            //线程池已关闭或队列已满，在当前线程回调，保证监听收到结果
+            ApiLog.i(TAG, name + " rejected, deliver directly");
+            task.run();
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return 待投递个数（队列深度）
+     */
+    public int depth() {
+        return depth.get();
+    }
+
+    /**
+     * @return 最大待投递个数
+     */
+    public int maxDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * @return 已投递个数
+     */
+    public long delivered() {
+        return delivered.get();
+    }
+
+    /**
+     * @return 投递耗时（提交到开始回调）
+     */
+    public Histogram latency() {
+        return latency;
+    }
+
+    /**
+     * 重置统计
+     */
+    public void reset() {
+        maxDepth.set(depth.get());
+        delivered.set(0);
+        latency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "Delivery{" +
+                "name='" + name + '\'' +
+                ", depth=" + depth.get() +
+                ", maxDepth=" + maxDepth.get() +
+                ", delivered=" + delivered.get() +
+                ", latency={" + latency +
+                "}}";
+    }
+
+    /**
+     * Handler投递
+     */
+    private static class HandlerDelivery extends Delivery {
+
+        private final Handler handler;
+
+        HandlerDelivery(String name, Handler handler) {
+            super(name);
+            this.handler = handler;
+        }
+
+        @Override
+        protected void dispatch(Runnable runnable) {
+            if (!handler.post(runnable)) {
+                throw new RejectedExecutionException(name() + " looper exiting");
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,100 @@
+package androidx.api;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+
+/**
+ * 调度拦截器<br/>
+ * 请求加入调度时记录时间（{@link #enqueued(Call)}），作为第一个应用拦截器在开始执行时计算排队耗时，<br/>
+ * 收到响应头时计算执行耗时，按主机和全部请求记录到{@link DispatchStats}，见{@link ClientRegistry}。
+ */
+public class DispatchInterceptor implements Interceptor {
+
+    /**
+     * 请求 - 加入调度时间（纳秒）
+     */
+    private final Map<okhttp3.Request, Long> enqueued = Collections.synchronizedMap(new WeakHashMap<okhttp3.Request, Long>());
+    /**
+     * 主机统计
+     */
+    private final Map<String, DispatchStats> hostStats = new ConcurrentHashMap<>();
+    /**
+     * 全部请求统计
+     */
+    private final DispatchStats stats = new DispatchStats(null);
+
+    /**
+     * 请求加入调度
+     *
+     * @param call 请求
+     */
+    public void enqueued(Call call) {
+        enqueued.put(call.request(), SystemClock.elapsedRealtimeNanos());
+    }
+
+    @Override
+    public okhttp3.Response intercept(Chain chain) throws IOException {
+        okhttp3.Request request = chain.request();
+        Long time = enqueued.remove(request);
+        long start = SystemClock.elapsedRealtimeNanos();
+        try {
+            return chain.proceed(request);
+        } finally {
+            long queueWait = time == null ? -1 : start - time;
+            long execution = SystemClock.elapsedRealtimeNanos() - start;
+            stats.record(queueWait, execution);
+            dispatchStats(request.url().host()).record(queueWait, execution);
+        }
+    }
+
+    /**
+     * @return 全部请求统计
+     */
+    public DispatchStats dispatchStats() {
+        return stats;
+    }
+
+    /**
+     * 获取主机统计
+     *
+     * @param host 主机
+     * @return
+     */
+    public DispatchStats dispatchStats(String host) {
+        DispatchStats stats = hostStats.get(host);
+        if (stats == null) {
+            DispatchStats created = new DispatchStats(host);
+            stats = hostStats.putIfAbsent(host, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @return 所有主机统计
+     */
+    public List<DispatchStats> hostStats() {
+        return new ArrayList<>(hostStats.values());
+    }
+
+    /**
+     * 重置统计
+     */
+    public void reset() {
+        stats.reset();
+        hostStats.clear();
+    }
+
+}
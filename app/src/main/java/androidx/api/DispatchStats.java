@@ -0,0 +1,67 @@
+package androidx.api;
+
+/**
+ * 调度统计<br/>
+ * 排队耗时：请求加入调度到开始执行（主机并发限制、调度器就绪队列、线程池队列）；<br/>
+ * 执行耗时：开始执行到收到响应头（含连接、缓存拦截器）。
+ */
+public class DispatchStats {
+
+    /**
+     * 主机，为空时表示所有主机
+     */
+    private final String host;
+    /**
+     * 排队耗时
+     */
+    private final Histogram queueWait = new Histogram();
+    /**
+     * 执行耗时
+     */
+    private final Histogram execution = new Histogram();
+
+    public DispatchStats(String host) {
+        this.host = host;
+    }
+
+    /**
+     * 记录一次请求
+     *
+     * @param queueWait 排队耗时 - 单位纳秒，未知时小于0
+     * @param execution 执行耗时 - 单位纳秒
+     */
+    void record(long queueWait, long execution) {
+        this.queueWait.record(queueWait);
+        this.execution.record(execution);
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public Histogram queueWait() {
+        return queueWait;
+    }
+
+    public Histogram execution() {
+        return execution;
+    }
+
+    /**
+     * 重置
+     */
+    public void reset() {
+        queueWait.reset();
+        execution.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "DispatchStats{" +
+                "host='" + host + '\'' +
+                ", queueWait={" + queueWait +
+                "}, execution={" + execution +
+                "}}";
+    }
+
+}
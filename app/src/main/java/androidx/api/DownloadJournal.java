@@ -0,0 +1,466 @@
+package androidx.api;
+
+import android.util.Base64;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * 下载日志<br/>
+ * 与下载文件同目录的追加写二进制文件（文件名.journal），记录文件大小、ETag/Last-Modified、服务器摘要、<br/>
+ * 已提交的字节区间和完成时的SHA-256；每条记录带CRC32，进程被杀后只回放到最后一条完整记录。<br/>
+ * 提交区间前需要先将文件数据写入磁盘（FileChannel.force），提交后同步日志，恢复下载时只从已提交的位置继续。
+ */
+public class DownloadJournal {
+
+    /**
+     * 日志文件后缀
+     */
+    public static final String SUFFIX = ".journal";
+    /**
+     * 文件标识
+     */
+    private static final int MAGIC = 0x4F4B444A;
+    /**
+     * 版本
+     */
+    private static final int VERSION = 1;
+    /**
+     * 开始记录：文件大小、ETag、Last-Modified、服务器摘要
+     */
+    private static final byte BEGIN = 1;
+    /**
+     * 区间记录：开始位置、结束位置（不包含）
+     */
+    private static final byte RANGE = 2;
+    /**
+     * 完成记录：SHA-256
+     */
+    private static final byte COMPLETE = 3;
+
+    /**
+     * 日志文件
+     */
+    private final File file;
+    /**
+     * 下载文件
+     */
+    private final File target;
+    /**
+     * 文件大小，未开始时为-1
+     */
+    private long length = -1;
+    /**
+     * ETag
+     */
+    private String etag;
+    /**
+     * Last-Modified
+     */
+    private String lastModified;
+    /**
+     * 服务器摘要（SHA-256十六进制）
+     */
+    private String digest;
+    /**
+     * 完成时的SHA-256
+     */
+    private String sha256;
+    /**
+     * 已提交区间：开始位置 - 结束位置（不包含），已合并
+     */
+    private final TreeMap<Long, Long> ranges = new TreeMap<>();
+
+    private DownloadJournal(File target) {
+        this.target = target;
+        this.file = journalFile(target);
+    }
+
+    /**
+     * @param target 下载文件
+     * @return 日志文件
+     */
+    public static File journalFile(File target) {
+        return new File(target.getAbsolutePath() + SUFFIX);
+    }
+
+    /**
+     * 打开下载文件的日志，存在时回放
+     *
+     * @param target 下载文件
+     * @return
+     */
+    public static DownloadJournal open(File target) {
+        DownloadJournal journal = new DownloadJournal(target);
+        journal.replay();
+        return journal;
+    }
+
+    /**
+     * 删除下载文件的日志
+     *
+     * @param target 下载文件
+     */
+    public static void delete(File target) {
+        File file = journalFile(target);
+        if (file.exists()) {
+            file.delete();
+        }
+    }
+
+    /**
+     * 回放日志，遇到不完整或校验失败的记录时截断
+     */
+    private synchronized void replay() {
+        if (!file.exists()) {
+            return;
+        }
+        long valid = 0;
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                    reset();
+                    return;
+                }
+                valid = 8;
+                while (true) {
+                    int size = input.readInt();
+                    if (size <= 0 || size > 64 * 1024) {
+                        break;
+                    }
+                    byte[] record = new byte[size];
+                    input.readFully(record);
+                    long crc = input.readInt() & 0xFFFFFFFFL;
+                    if (crc(record) != crc) {
+                        break;
+                    }
+                    apply(record);
+                    valid += 4 + size + 4;
+                }
+            } catch (EOFException e) {
+                //最后一条记录不完整
+            } finally {
+                input.close();
+            }
+            if (valid < file.length()) {
+                RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+                try {
+                    randomAccessFile.setLength(valid);
+                } finally {
+                    randomAccessFile.close();
+                }
+            }
+        } catch (IOException e) {
+            ApiLog.i(Downloader.TAG, "journal replay failed: " + e.getMessage());
+            reset();
+        }
+    }
+
+    /**
+     * 应用记录
+     *
+     * @param record 记录
+     * @throws IOException
+     */
+    private void apply(byte[] record) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = input.readByte();
+        if (type == BEGIN) {
+            length = input.readLong();
+            etag = emptyToNull(input.readUTF());
+            lastModified = emptyToNull(input.readUTF());
+            digest = emptyToNull(input.readUTF());
+            sha256 = null;
+            ranges.clear();
+        } else if (type == RANGE) {
+            addRange(input.readLong(), input.readLong());
+        } else if (type == COMPLETE) {
+            sha256 = input.readUTF();
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.length() == 0 ? null : value;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static long crc(byte[] record) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(record, 0, record.length);
+        return crc32.getValue();
+    }
+
+    /**
+     * 追加记录并同步到磁盘
+     *
+     * @param record   记录
+     * @param truncate 是否清空后重写
+     * @throws IOException
+     */
+    private void append(byte[] record, boolean truncate) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            if (truncate || randomAccessFile.length() < 8) {
+                randomAccessFile.setLength(0);
+                randomAccessFile.writeInt(MAGIC);
+                randomAccessFile.writeInt(VERSION);
+            }
+            randomAccessFile.seek(randomAccessFile.length());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(record.length + 8);
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(record.length);
+            output.write(record);
+            output.writeInt((int) crc(record));
+            randomAccessFile.write(bytes.toByteArray());
+            randomAccessFile.getFD().sync();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * 开始新的下载，清空之前的记录
+     *
+     * @param length       文件大小
+     * @param etag         ETag
+     * @param lastModified Last-Modified
+     * @param digest       服务器摘要（SHA-256十六进制），没有时为空
+     * @throws IOException
+     */
+    public synchronized void begin(long length, String etag, String lastModified, String digest) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(BEGIN);
+        output.writeLong(length);
+        output.writeUTF(nullToEmpty(etag));
+        output.writeUTF(nullToEmpty(lastModified));
+        output.writeUTF(nullToEmpty(digest));
+        append(bytes.toByteArray(), true);
+        this.length = length;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.digest = digest;
+        this.sha256 = null;
+        ranges.clear();
+    }
+
+    /**
+     * 提交区间，调用前文件数据需要已写入磁盘
+     *
+     * @param start 开始位置
+     * @param end   结束位置（不包含）
+     * @throws IOException
+     */
+    public synchronized void commit(long start, long end) throws IOException {
+        if (end <= start) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(RANGE);
+        output.writeLong(start);
+        output.writeLong(end);
+        append(bytes.toByteArray(), false);
+        addRange(start, end);
+    }
+
+    /**
+     * 标记完成
+     *
+     * @param sha256 文件SHA-256
+     * @throws IOException
+     */
+    public synchronized void complete(String sha256) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(COMPLETE);
+        output.writeUTF(sha256);
+        append(bytes.toByteArray(), false);
+        this.sha256 = sha256;
+    }
+
+    /**
+     * 清空日志
+     */
+    public synchronized void reset() {
+        if (file.exists()) {
+            file.delete();
+        }
+        length = -1;
+        etag = null;
+        lastModified = null;
+        digest = null;
+        sha256 = null;
+        ranges.clear();
+    }
+
+    /**
+     * 合并区间
+     *
+     * @param start 开始位置
+     * @param end   结束位置（不包含）
+     */
+    private void addRange(long start, long end) {
+        Map.Entry<Long, Long> floor = ranges.floorEntry(start);
+        if (floor != null && floor.getValue() >= start) {
+            start = floor.getKey();
+            end = Math.max(end, floor.getValue());
+        }
+        Map.Entry<Long, Long> next = ranges.ceilingEntry(start);
+        while (next != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            ranges.remove(next.getKey());
+            next = ranges.ceilingEntry(start);
+        }
+        ranges.put(start, end);
+    }
+
+    /**
+     * @return 下载文件
+     */
+    public File target() {
+        return target;
+    }
+
+    /**
+     * @return 是否已开始（有文件大小记录）
+     */
+    public synchronized boolean isStarted() {
+        return length >= 0;
+    }
+
+    /**
+     * @return 是否已完成
+     */
+    public synchronized boolean isCompleted() {
+        return sha256 != null;
+    }
+
+    public synchronized long length() {
+        return length;
+    }
+
+    public synchronized String etag() {
+        return etag;
+    }
+
+    public synchronized String lastModified() {
+        return lastModified;
+    }
+
+    public synchronized String digest() {
+        return digest;
+    }
+
+    public synchronized String sha256() {
+        return sha256;
+    }
+
+    /**
+     * 从指定位置开始连续提交的字节数
+     *
+     * @param start 开始位置
+     * @param end   结束位置（不包含）
+     * @return
+     */
+    public synchronized long committed(long start, long end) {
+        Map.Entry<Long, Long> floor = ranges.floorEntry(start);
+        if (floor == null || floor.getValue() <= start) {
+            return 0;
+        }
+        return Math.min(floor.getValue(), end) - start;
+    }
+
+    /**
+     * @return 已提交的总字节数
+     */
+    public synchronized long committed() {
+        long sum = 0;
+        for (Map.Entry<Long, Long> entry : ranges.entrySet()) {
+            sum += entry.getValue() - entry.getKey();
+        }
+        return sum;
+    }
+
+    /**
+     * 计算文件SHA-256
+     *
+     * @param target 文件
+     * @return 十六进制
+     * @throws IOException
+     */
+    public static String sha256(File target) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        InputStream input = new FileInputStream(target);
+        try {
+            byte[] buffer = new byte[Downloader.TRANSFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, read);
+            }
+        } finally {
+            input.close();
+        }
+        return hex(messageDigest.digest());
+    }
+
+    /**
+     * 解析服务器摘要头（Digest: SHA-256=Base64）
+     *
+     * @param header Digest头
+     * @return SHA-256十六进制，没有时为空
+     */
+    public static String parseDigest(String header) {
+        if (header == null) {
+            return null;
+        }
+        for (String item : header.split(",")) {
+            String value = item.trim();
+            int index = value.indexOf('=');
+            if (index > 0 && value.substring(0, index).equalsIgnoreCase("SHA-256")) {
+                try {
+                    return hex(Base64.decode(value.substring(index + 1), Base64.DEFAULT));
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,482 @@
+package androidx.api;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.net.ssl.SSLSocketFactory;
+
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.internal.platform.Platform;
+
+/**
+ * 下载管理<br/>
+ * 所有下载共享一个客户端，限制全局和单个主机的同时下载数，按优先级排队；<br/>
+ * 高优先级任务排队时暂停优先级更低的断点下载任务（抢占），被抢占的任务重新排队后继续；<br/>
+ * 同一地址+文件名的下载合并为一个任务，多个监听同时回调。<br/>
+ */
+public class DownloadManager {
+
+    public final static String TAG = DownloadManager.class.getSimpleName();
+    /**
+     * 默认优先级
+     */
+    public static final int PRIORITY_NORMAL = 0;
+    /**
+     * 高优先级
+     */
+    public static final int PRIORITY_HIGH = 10;
+    /**
+     * 低优先级
+     */
+    public static final int PRIORITY_LOW = -10;
+
+    private static DownloadManager instance;
+    /**
+     * 最大同时下载数
+     */
+    private int maxDownloads = 3;
+    /**
+     * 单个主机最大同时下载数
+     */
+    private int maxDownloadsPerHost = 2;
+    /**
+     * 共享客户端
+     */
+    private OkHttpClient client;
+    /**
+     * 任务标识 - 任务（排队中和下载中）
+     */
+    private final Map<String, Task> tasks = new HashMap<>();
+    /**
+     * 排队任务
+     */
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    /**
+     * 下载中任务
+     */
+    private final List<Task> running = new ArrayList<>();
+    /**
+     * 任务序号，同优先级先进先出
+     */
+    private long sequence;
+
+    private DownloadManager() {
+
+    }
+
+    public static DownloadManager acquire() {
+        if (instance == null) {
+            synchronized (DownloadManager.class) {
+                if (instance == null) {
+                    instance = new DownloadManager();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return 最大同时下载数
+     */
+    public synchronized int maxDownloads() {
+        return maxDownloads;
+    }
+
+    /**
+     * 设置最大同时下载数
+     *
+     * @param maxDownloads 下载数
+     * @return
+     */
+    public DownloadManager maxDownloads(int maxDownloads) {
+        synchronized (this) {
+            this.maxDownloads = Math.max(1, maxDownloads);
+        }
+        promote();
+        return this;
+    }
+
+    /**
+     * @return 单个主机最大同时下载数
+     */
+    public synchronized int maxDownloadsPerHost() {
+        return maxDownloadsPerHost;
+    }
+
+    /**
+     * 设置单个主机最大同时下载数
+     *
+     * @param maxDownloadsPerHost 下载数
+     * @return
+     */
+    public DownloadManager maxDownloadsPerHost(int maxDownloadsPerHost) {
+        synchronized (this) {
+            this.maxDownloadsPerHost = Math.max(1, maxDownloadsPerHost);
+        }
+        promote();
+        return this;
+    }
+
+    /**
+     * 共享客户端，并发由下载管理控制，客户端调度不再限制单个主机
+     *
+     * @return
+     */
+    public synchronized OkHttpClient client() {
+        if (client == null) {
+            //不使用请求客户端的拦截器（日志拦截器会读取响应内容），只共享连接池
+            Configure configure = Configure.Config();
+            OkHttpClient.Builder builder = new OkHttpClient.Builder();
+            builder.connectionPool(configure.connectionPool());
+            SSLSocketFactory sslSocketFactory = configure.socketFactory();
+            builder.sslSocketFactory(sslSocketFactory, Platform.get().trustManager(sslSocketFactory));
+            builder.hostnameVerifier(new HttpsHostnameVerifier());
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(Integer.MAX_VALUE);
+            dispatcher.setMaxRequestsPerHost(Integer.MAX_VALUE);
+            builder.dispatcher(dispatcher);
+            client = builder.build();
+        }
+        return client;
+    }
+
+    /**
+     * 任务标识：地址+文件名
+     *
+     * @param builder 下载参数
+     * @return
+     */
+    protected String key(Downloader.Builder builder) {
+        String name = builder.name() == null ? Downloader.createFileName(builder.url()) : builder.name();
+        return builder.url() + "|" + name;
+    }
+
+    /**
+     * 添加下载
+     *
+     * @param builder 下载参数
+     * @return 下载任务
+     */
+    public Task enqueue(Downloader.Builder builder) {
+        return enqueue(builder, PRIORITY_NORMAL);
+    }
+
+    /**
+     * 添加下载，相同地址+文件名的任务已存在时只添加监听
+     *
+     * @param builder  下载参数
+     * @param priority 优先级，越大越优先
+     * @return 下载任务
+     */
+    public Task enqueue(Downloader.Builder builder, int priority) {
+        Task preempted = null;
+        Task task;
+        synchronized (this) {
+            String key = key(builder);
+            task = tasks.get(key);
+            if (task != null) {
+                task.addListener(builder.listener());
+                if (priority > task.priority && queue.remove(task)) {
+                    task.priority = priority;
+                    queue.add(task);
+                }
+            } else {
+                task = new Task(this, key, priority, sequence++);
+                task.addListener(builder.listener());
+                builder.listener(task).client(client()).autoStart(false);
+                task.downloader = new ManagedDownloader(builder, task);
+                tasks.put(key, task);
+                queue.add(task);
+                if (!canRun(task)) {
+                    preempted = findPreempted(task);
+                    if (preempted != null) {
+                        preempted.preempted = true;
+                    }
+                }
+            }
+        }
+        if (preempted != null) {
+            ApiLog.i(TAG, "preempt: " + preempted.key + " by " + task.key);
+            preempted.downloader.pause();
+        }
+        promote();
+        return task;
+    }
+
+    /**
+     * 取消下载
+     *
+     * @param url 地址
+     */
+    public void cancel(String url) {
+        List<Task> cancelled = new ArrayList<>();
+        synchronized (this) {
+            for (Task task : new ArrayList<>(tasks.values())) {
+                if (task.downloader.url.equals(url)) {
+                    cancelled.add(task);
+                    task.cancelled = true;
+                    if (queue.remove(task)) {
+                        tasks.remove(task.key);
+                    }
+                }
+            }
+        }
+        for (Task task : cancelled) {
+            task.downloader.cancel();
+        }
+        promote();
+    }
+
+    /**
+     * 取消所有下载
+     */
+    public void cancelAll() {
+        List<Task> cancelled;
+        synchronized (this) {
+            cancelled = new ArrayList<>(tasks.values());
+            for (Task task : cancelled) {
+                task.cancelled = true;
+            }
+            for (Task task : queue) {
+                tasks.remove(task.key);
+            }
+            queue.clear();
+        }
+        for (Task task : cancelled) {
+            task.downloader.cancel();
+        }
+    }
+
+    /**
+     * @return 下载中任务数
+     */
+    public synchronized int runningCount() {
+        return running.size();
+    }
+
+    /**
+     * @return 排队任务数
+     */
+    public synchronized int queuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * @param task 任务
+     * @return 是否有空闲的下载位置
+     */
+    private boolean canRun(Task task) {
+        if (running.size() >= maxDownloads) {
+            return false;
+        }
+        int count = 0;
+        for (Task item : running) {
+            if (item.host.equals(task.host)) {
+                count++;
+            }
+        }
+        return count < maxDownloadsPerHost;
+    }
+
+    /**
+     * 找到可以被抢占的任务：同主机（主机已满时）或全局优先级最低、支持断点且低于新任务的下载中任务
+     *
+     * @param task 新任务
+     * @return
+     */
+    private Task findPreempted(Task task) {
+        //全局未满时是主机已满，只能抢占同主机任务
+        boolean hostLimited = running.size() < maxDownloads;
+        Task lowest = null;
+        for (Task item : running) {
+            if (item.preempted || !item.downloader.breakpoint || item.priority >= task.priority) {
+                continue;
+            }
+            if (hostLimited && !item.host.equals(task.host)) {
+                continue;
+            }
+            if (lowest == null || item.priority < lowest.priority) {
+                lowest = item;
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * 按优先级开始排队任务
+     */
+    protected void promote() {
+        List<Task> started = new ArrayList<>();
+        synchronized (this) {
+            List<Task> skipped = new ArrayList<>();
+            while (!queue.isEmpty()) {
+                Task task = queue.poll();
+                if (canRun(task)) {
+                    running.add(task);
+                    started.add(task);
+                } else {
+                    skipped.add(task);
+                    if (running.size() >= maxDownloads) {
+                        break;
+                    }
+                }
+            }
+            queue.addAll(skipped);
+        }
+        for (Task task : started) {
+            ApiLog.i(TAG, "start: " + task.key + " , priority: " + task.priority);
+            task.downloader.start();
+        }
+    }
+
+    /**
+     * 任务停止（完成、失败、暂停、取消）
+     *
+     * @param task 任务
+     */
+    protected void onStopped(Task task) {
+        synchronized (this) {
+            if (!running.remove(task)) {
+                return;
+            }
+            if (task.preempted && !task.cancelled && !task.finished) {
+                task.preempted = false;
+                queue.add(task);
+            } else {
+                tasks.remove(task.key);
+            }
+        }
+        promote();
+    }
+
+    /**
+     * 受管理的下载，停止时通知下载管理
+     */
+    private static class ManagedDownloader extends Downloader {
+
+        private final Task task;
+
+        ManagedDownloader(Builder builder, Task task) {
+            super(builder);
+            this.task = task;
+        }
+
+        @Override
+        protected void sendCompletedMsg(File file) {
+            task.finished = true;
+            super.sendCompletedMsg(file);
+        }
+
+        @Override
+        protected void sendFailedMsg(Exception e) {
+            task.finished = true;
+            super.sendFailedMsg(e);
+        }
+
+        @Override
+        public void setDownloading(boolean downloading) {
+            super.setDownloading(downloading);
+            if (!downloading && task != null) {
+                task.manager.onStopped(task);
+            }
+        }
+
+    }
+
+    /**
+     * 下载任务，同一任务的多个监听同时回调
+     */
+    public static class Task implements OnDownloadListener, Comparable<Task> {
+
+        private final DownloadManager manager;
+        private final String key;
+        private final String host;
+        private final long sequence;
+        private final List<OnDownloadListener> listeners = new CopyOnWriteArrayList<>();
+        private volatile int priority;
+        private volatile boolean preempted;
+        private volatile boolean cancelled;
+        private volatile boolean finished;
+        private Downloader downloader;
+
+        Task(DownloadManager manager, String key, int priority, long sequence) {
+            this.manager = manager;
+            this.key = key;
+            int index = key.lastIndexOf('|');
+            HttpUrl url = HttpUrl.parse(key.substring(0, index));
+            this.host = url == null ? "" : url.host();
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public int priority() {
+            return priority;
+        }
+
+        public Downloader downloader() {
+            return downloader;
+        }
+
+        /**
+         * 添加监听
+         *
+         * @param listener 监听
+         */
+        public void addListener(OnDownloadListener listener) {
+            if (listener != null && listener != this) {
+                listeners.add(listener);
+            }
+        }
+
+        /**
+         * 移除监听
+         *
+         * @param listener 监听
+         */
+        public void removeListener(OnDownloadListener listener) {
+            listeners.remove(listener);
+        }
+
+        @Override
+        public void onDownloading(long total, long progress) {
+            for (OnDownloadListener listener : listeners) {
+                listener.onDownloading(total, progress);
+            }
+        }
+
+        @Override
+        public void onDownloadCompleted(File file) {
+            for (OnDownloadListener listener : listeners) {
+                listener.onDownloadCompleted(file);
+            }
+        }
+
+        @Override
+        public void onDownloadFailed(Exception e) {
+            for (OnDownloadListener listener : listeners) {
+                listener.onDownloadFailed(e);
+            }
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            if (priority != o.priority) {
+                return priority > o.priority ? -1 : 1;
+            }
+            return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+        }
+
+    }
+
+}
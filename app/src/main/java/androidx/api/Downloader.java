@@ -1,7 +1,6 @@
 package androidx.api;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.os.Environment;
 import android.os.Handler;
@@ -15,14 +14,23 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.SSLSocketFactory;
 
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.internal.platform.Platform;
+import okio.BufferedSource;
+import okio.Okio;
 
 /**
  * 下载助手<br/>
@@ -65,6 +73,14 @@ public class Downloader {
      * 下载失败
      */
     public static final int WHAT_DOWNLOAD_FAILED = 0x003;
+    /**
+     * 分段进度保存间隔 - 单位字节
+     */
+    public static final long SEGMENT_SAVE_INTERVAL = 512 * 1024;
+    /**
+     * 单次写入文件的块大小 - 单位字节，暂停、取消在块之间检查
+     */
+    public static final int TRANSFER_SIZE = 64 * 1024;
     /**
      * 上下文
      */
@@ -98,9 +114,37 @@ public class Downloader {
      */
     public final boolean breakpoint;
     /**
-     * 是否覆盖下载
+     * 是否覆盖下载，已下载的文件有校验信息（ETag/Last-Modified）时先向服务器验证，未变化时不重新下载
      */
     public final boolean cover;
+    /**
+     * 分段数，大于1时服务器支持Range则分段并行下载
+     */
+    public final int segments;
+    /**
+     * 分段下载已下载大小
+     */
+    private final AtomicLong segmentDownloaded = new AtomicLong();
+    /**
+     * 分段下载进行中的分段数
+     */
+    private final AtomicInteger segmentRunning = new AtomicInteger();
+    /**
+     * 分段下载已完成的分段数
+     */
+    private final AtomicInteger segmentCompleted = new AtomicInteger();
+    /**
+     * 分段下载是否失败
+     */
+    private final AtomicBoolean segmentFailed = new AtomicBoolean();
+    /**
+     * 分段下载是否需要从头重新下载（If-Range验证失败，文件已变化）
+     */
+    private final AtomicBoolean segmentRestart = new AtomicBoolean();
+    /**
+     * 本次下载是否已从头重新下载过，只重新下载一次，避免文件持续变化时反复下载
+     */
+    private volatile boolean segmentRestarted;
     /**
      * 下载Handler
      */
@@ -109,6 +153,26 @@ public class Downloader {
      * 下载监听
      */
     protected OnDownloadListener onDownloadListener;
+    /**
+     * 进度分发
+     */
+    protected ProgressDispatcher progressDispatcher;
+    /**
+     * 下载日志
+     */
+    protected DownloadJournal journal;
+    /**
+     * 共享客户端，为空时每次下载创建客户端
+     */
+    private OkHttpClient client;
+    /**
+     * 单个下载限速，为空不限速
+     */
+    protected RateLimiter rateLimiter;
+    /**
+     * 下载主机，用于主机限速
+     */
+    protected String host;
 
     public Downloader(Builder builder) {
         this.context = builder.context;
@@ -116,9 +180,24 @@ public class Downloader {
         this.name = builder.name;
         this.breakpoint = builder.breakpoint;
         this.cover = builder.cover;
+        this.segments = Math.max(1, builder.segments);
         this.onDownloadListener = builder.onDownloadListener;
+        this.client = builder.client;
+        if (builder.rate > 0) {
+            this.rateLimiter = new RateLimiter(builder.rate);
+        }
+        HttpUrl httpUrl = url == null ? null : HttpUrl.parse(url);
+        this.host = httpUrl == null ? null : httpUrl.host();
         handler = new DownloadHandler();
-        start();
+        progressDispatcher = new ProgressDispatcher(handler, builder.progressInterval, builder.progressStep, new ProgressDispatcher.Callback() {
+            @Override
+            public void onProgress(long total, long progress) {
+                onDownloadProgress(total, progress);
+            }
+        });
+        if (builder.autoStart) {
+            start();
+        }
     }
 
     public static class Builder {
@@ -128,10 +207,63 @@ public class Downloader {
         private String name;
         private boolean breakpoint;
         private boolean cover;
+        private int segments = 1;
+        private long progressInterval = ProgressDispatcher.DEFAULT_INTERVAL;
+        private float progressStep;
+        private boolean autoStart = true;
+        private long rate;
+        private OkHttpClient client;
         private OnDownloadListener onDownloadListener;
 
         public Builder(Context context) {
             this.context = context;
+            Configure configure = Configure.Config();
+            if (configure != null) {
+                progressInterval = configure.progressInterval();
+                progressStep = configure.progressStep();
+            }
+        }
+
+        public Context context() {
+            return context;
+        }
+
+        public String url() {
+            return url;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public OnDownloadListener listener() {
+            return onDownloadListener;
+        }
+
+        public boolean isAutoStart() {
+            return autoStart;
+        }
+
+        /**
+         * 创建后是否立即开始下载，默认true
+         *
+         * @param autoStart 是否立即开始
+         * @return
+         */
+        public Builder autoStart(boolean autoStart) {
+            this.autoStart = autoStart;
+            return this;
+        }
+
+        /**
+         * 设置共享客户端，不设置时每次下载创建客户端
+         *
+         * @param client 客户端
+         * @return
+         */
+        public Builder client(OkHttpClient client) {
+            this.client = client;
+            return this;
         }
 
         public Builder url(String url) {
@@ -162,6 +294,58 @@ public class Downloader {
             return this;
         }
 
+        public int segments() {
+            return segments;
+        }
+
+        /**
+         * 分段并行下载
+         *
+         * @param segments 分段数，服务器不支持Range时按单连接下载
+         * @return
+         */
+        public Builder segments(int segments) {
+            this.segments = segments;
+            return this;
+        }
+
+        /**
+         * 进度回调间隔，间隔内的进度合并为一次回调
+         *
+         * @param progressInterval 间隔 - 单位毫秒
+         * @return
+         */
+        public Builder progressInterval(long progressInterval) {
+            this.progressInterval = progressInterval;
+            return this;
+        }
+
+        /**
+         * 进度回调百分比步长
+         *
+         * @param progressStep 步长（0-100）
+         * @return
+         */
+        public Builder progressStep(float progressStep) {
+            this.progressStep = progressStep;
+            return this;
+        }
+
+        public long rate() {
+            return rate;
+        }
+
+        /**
+         * 单个下载限速，同时受{@link Bandwidth}全局和主机限速
+         *
+         * @param rate 速率 - 字节/秒，小于等于0不限速
+         * @return
+         */
+        public Builder rate(long rate) {
+            this.rate = rate;
+            return this;
+        }
+
         public Builder listener(OnDownloadListener onDownloadListener) {
             this.onDownloadListener = onDownloadListener;
             return this;
@@ -256,6 +440,9 @@ public class Downloader {
      */
     public void destroy() {
         cancel();
+        if (progressDispatcher != null) {
+            progressDispatcher.cancel();
+        }
         if (handler != null) {
             handler.removeCallbacksAndMessages(null);
             handler = null;
@@ -304,38 +491,6 @@ public class Downloader {
         return size;
     }
 
-    /**
-     * 获取缓存对象
-     *
-     * @return
-     */
-    protected static SharedPreferences getSharedPreferences(Context context) {
-        String PACKAGE_NAME = context.getApplicationContext().getPackageName().replace(".", "_").toUpperCase();
-        return context.getSharedPreferences(PACKAGE_NAME + "_DOWNLOAD", Context.MODE_PRIVATE);
-    }
-
-    /**
-     * 添加缓存长度
-     *
-     * @param context 上下文
-     * @param url     地址
-     * @param length  文件大小
-     */
-    protected static void addCacheLength(Context context, String url, long length) {
-        getSharedPreferences(context).edit().putLong(url, length).apply();
-    }
-
-    /**
-     * 获取文件大小
-     *
-     * @param context 上下文
-     * @param url     地址
-     * @return
-     */
-    protected static long getCacheLength(Context context, String url) {
-        return getSharedPreferences(context).getLong(url, 0);
-    }
-
     /**
      * 清空下载数据
      */
@@ -345,7 +500,6 @@ public class Downloader {
             boolean status = file.delete();
             ApiLog.i(TAG, "clear file: " + file.getAbsolutePath() + " , status: " + status);
         }
-        getSharedPreferences(context).edit().clear().apply();
     }
 
     /**
@@ -363,6 +517,7 @@ public class Downloader {
         if (file.exists()) {
             file.delete();
         }
+        DownloadJournal.delete(file);
     }
 
     /**
@@ -376,11 +531,7 @@ public class Downloader {
         ApiLog.i(TAG, "external files dir: " + dir.getAbsolutePath());
         String fileName = name == null ? createFileName(url) : name;
         ApiLog.i(TAG, "fileName: " + fileName);
-        File file = new File(dir.getAbsolutePath() + File.separator + fileName);
-        if (cover && file.exists()) {
-            file.delete();
-        }
-        return file;
+        return new File(dir.getAbsolutePath() + File.separator + fileName);
     }
 
     /**
@@ -398,6 +549,82 @@ public class Downloader {
     }
 
 
+    /**
+     * 获取下载日志，文件变化时重新打开
+     *
+     * @param file 下载文件
+     * @return
+     */
+    protected synchronized DownloadJournal journal(File file) {
+        if (journal == null || !journal.target().equals(file)) {
+            journal = DownloadJournal.open(file);
+        }
+        return journal;
+    }
+
+    /**
+     * 文件是否已下载完成
+     *
+     * @param file    文件
+     * @param journal 下载日志
+     * @return
+     */
+    protected boolean isCompleted(File file, DownloadJournal journal) {
+        return file.exists() && journal.isCompleted() && journal.length() == file.length();
+    }
+
+    /**
+     * 是否可以向服务器验证（有ETag或Last-Modified）
+     *
+     * @param journal 下载日志
+     * @return
+     */
+    protected boolean isRevalidatable(DownloadJournal journal) {
+        return journal.etag() != null || journal.lastModified() != null;
+    }
+
+    /**
+     * 添加验证头（If-None-Match/If-Modified-Since），文件未变化时服务器返回304
+     *
+     * @param builder 请求
+     * @param journal 下载日志
+     */
+    protected void addRevalidateHeaders(okhttp3.Request.Builder builder, DownloadJournal journal) {
+        if (journal.etag() != null) {
+            builder.header("If-None-Match", journal.etag());
+        }
+        if (journal.lastModified() != null) {
+            builder.header("If-Modified-Since", journal.lastModified());
+        }
+    }
+
+    /**
+     * 断点续传验证值（If-Range），文件变化时服务器返回完整内容（200）<br/>
+     * 弱ETag（W/开头）不能用于If-Range，使用Last-Modified
+     *
+     * @param journal 下载日志
+     * @return 没有时为空
+     */
+    protected String ifRange(DownloadJournal journal) {
+        String etag = journal.etag();
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return journal.lastModified();
+    }
+
+    /**
+     * 服务器返回304，文件未变化，直接完成
+     *
+     * @param file 文件
+     */
+    protected void sendNotModified(File file) {
+        ApiLog.i(TAG, "not modified.");
+        sendDownloadingMsg(file.length(), file.length());
+        sendCompletedMsg(file);
+        setDownloading(false);
+    }
+
     /**
      * 是否存在
      *
@@ -416,57 +643,445 @@ public class Downloader {
         ApiLog.i(TAG, "url: " + url);
         if (TextUtils.isEmpty(url)) {
             sendFailedMsg(new IOException("File download network address is empty."));
+            setDownloading(false);
             return;
         }
         if (!url.toUpperCase().startsWith("HTTP")) {
             sendFailedMsg(new IOException("File download address error, unable to download normal."));
+            setDownloading(false);
             return;
         }
-        long cacheLength = getCacheLength(context, url);
-        if (isExist(url) && cacheLength == createFile(url).length()) {
+        File file = createFile(url);
+        DownloadJournal journal = journal(file);
+        boolean completed = isCompleted(file, journal);
+        segmentRestarted = false;
+        if (cover && !(completed && isRevalidatable(journal))) {
+            //覆盖下载且无法验证，删除后重新下载
+            file.delete();
+            journal.reset();
+            completed = false;
+        }
+        if (completed && !cover) {
             ApiLog.i(TAG, "file exist.");
-            sendDownloadingMsg(cacheLength, cacheLength);
-            sendCompletedMsg(createFile(url));
+            sendDownloadingMsg(file.length(), file.length());
+            sendCompletedMsg(file);
+            setDownloading(false);
         } else {
             setDownloading(true);
-            download(url);
+            if (segments > 1) {
+                downloadSegments(url);
+            } else {
+                download(url);
+            }
         }
     }
 
     /**
-     * 下载
+     * 创建下载客户端
      *
-     * @param url
+     * @return
      */
-    protected void download(final String url) {
-        final long downloadedLength = calculateDownloadedLength(url);
-        okhttp3.Request request = new okhttp3.Request.Builder()
-                .addHeader("User-Agent", "Android")
-                .header("Content-Type", "text/html; charset=utf-8;")
-                .addHeader("RANGE", "bytes=" + downloadedLength + "-")
-                .url(url)
-                .build();
+    protected OkHttpClient createClient() {
+        if (client != null) {
+            return client;
+        }
         OkHttpClient.Builder builder = new OkHttpClient.Builder();
         Configure configure = Configure.Config();
         SSLSocketFactory sslSocketFactory = configure.socketFactory();
         builder.sslSocketFactory(sslSocketFactory, Platform.get().trustManager(sslSocketFactory));
         builder.hostnameVerifier(new HttpsHostnameVerifier());
-        OkHttpClient okHttpClient = builder.build();
+        if (segments > 1) {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequestsPerHost(Math.max(dispatcher.getMaxRequestsPerHost(), segments));
+            builder.dispatcher(dispatcher);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 创建下载请求
+     *
+     * @param url 地址
+     * @return
+     */
+    protected okhttp3.Request.Builder createRequestBuilder(String url) {
+        return new okhttp3.Request.Builder()
+                .addHeader("User-Agent", "Android")
+                .header("Content-Type", "text/html; charset=utf-8;")
+                .url(url);
+    }
+
+    /**
+     * 下载
+     *
+     * @param url
+     */
+    protected void download(final String url) {
+        File target = createFile(url);
+        final boolean revalidate = isCompleted(target, journal(target));
+        final long downloadedLength = revalidate ? 0 : calculateDownloadedLength(url);
+        okhttp3.Request.Builder builder = createRequestBuilder(url)
+                .addHeader("RANGE", "bytes=" + downloadedLength + "-");
+        if (revalidate) {
+            addRevalidateHeaders(builder, journal);
+        } else if (downloadedLength > 0 && ifRange(journal) != null) {
+            builder.header("If-Range", ifRange(journal));
+        }
+        okhttp3.Request request = builder.build();
+        OkHttpClient okHttpClient = createClient();
         Call call = okHttpClient.newCall(request);
         call.enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 ApiLog.i(TAG, e.getMessage());
                 sendFailedMsg(e);
+                setDownloading(false);
+            }
+
+            @Override
+            public void onResponse(Call call, okhttp3.Response response) {
+                File file = createFile(url);
+                DownloadJournal journal = journal(file);
+                long downloaded = downloadedLength;
+                if (revalidate && response.code() == 304) {
+                    response.close();
+                    sendNotModified(file);
+                    return;
+                }
+                try {
+                    if (downloaded > 0 && response.code() == 416 && downloaded == journal.length()) {
+                        //已全部下载，完成记录未写入
+                        response.close();
+                        completeDownload(file);
+                        return;
+                    }
+                    if (!response.isSuccessful()) {
+                        response.close();
+                        throw new IOException("Download failed, code: " + response.code());
+                    }
+                    if (downloaded > 0 && response.code() != 206) {
+                        //服务器未按Range返回或If-Range验证失败（文件已变化），从头下载
+                        ApiLog.i(TAG, "restart from 0, code: " + response.code());
+                        downloaded = 0;
+                    }
+                    if (downloaded == 0) {
+                        if (file.exists()) {
+                            file.delete();
+                        }
+                        journal.begin(response.body().contentLength(), response.header("ETag"), response.header("Last-Modified"), DownloadJournal.parseDigest(response.header("Digest")));
+                    }
+                } catch (IOException e) {
+                    ApiLog.i(TAG, e.getMessage());
+                    sendFailedMsg(e);
+                    setDownloading(false);
+                    return;
+                }
+                doHttpResponse(response.body().source(), response.body().contentLength(), downloaded, file);
+            }
+        });
+    }
+
+    /**
+     * 分段下载，先获取文件大小和是否支持Range，不支持时按单连接下载
+     *
+     * @param url 地址
+     */
+    protected void downloadSegments(final String url) {
+        final OkHttpClient okHttpClient = createClient();
+        final File file = createFile(url);
+        final boolean revalidate = isCompleted(file, journal(file));
+        okhttp3.Request.Builder builder = createRequestBuilder(url).head();
+        if (revalidate) {
+            addRevalidateHeaders(builder, journal);
+        }
+        okHttpClient.newCall(builder.build()).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                ApiLog.i(TAG, e.getMessage());
+                setDownloading(false);
+                sendFailedMsg(e);
             }
 
             @Override
             public void onResponse(Call call, okhttp3.Response response) {
-                doHttpResponse(response.body().byteStream(), response.body().contentLength(), downloadedLength, createFile(url));
+                if (revalidate && response.code() == 304) {
+                    response.close();
+                    sendNotModified(file);
+                    return;
+                }
+                long length = -1;
+                String contentLength = response.header("Content-Length");
+                try {
+                    length = contentLength == null ? -1 : Long.parseLong(contentLength);
+                } catch (NumberFormatException e) {
+                    length = -1;
+                }
+                boolean ranges = "bytes".equalsIgnoreCase(response.header("Accept-Ranges"));
+                boolean successful = response.isSuccessful();
+                String etag = response.header("ETag");
+                String lastModified = response.header("Last-Modified");
+                String digest = DownloadJournal.parseDigest(response.header("Digest"));
+                response.close();
+                ApiLog.i(TAG, "segments probe length: " + length + " , ranges: " + ranges);
+                if (!successful || !ranges || length < segments) {
+                    download(url);
+                    return;
+                }
+                startSegments(okHttpClient, url, length, etag, lastModified, digest);
             }
         });
     }
 
+    /**
+     * 开始分段下载，文件预分配大小，只下载未完成的分段
+     *
+     * @param okHttpClient 客户端
+     * @param url          地址
+     * @param length       文件大小
+     * @param etag         ETag
+     * @param lastModified Last-Modified
+     * @param digest       服务器摘要
+     */
+    protected void startSegments(OkHttpClient okHttpClient, String url, long length, String etag, String lastModified, String digest) {
+        File file = createFile(url);
+        DownloadJournal journal = journal(file);
+        boolean resume = isBreakpoint() && file.exists() && file.length() == length && journal.length() == length && !journal.isCompleted()
+                && equalsValidator(etag, journal.etag()) && equalsValidator(lastModified, journal.lastModified());
+        RandomAccessFile randomAccessFile = null;
+        try {
+            if (!resume) {
+                if (file.exists()) {
+                    file.delete();
+                }
+                journal.begin(length, etag, lastModified, digest);
+            }
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(length);
+        } catch (IOException e) {
+            setDownloading(false);
+            sendFailedMsg(e);
+            return;
+        } finally {
+            try {
+                if (randomAccessFile != null)
+                    randomAccessFile.close();
+            } catch (IOException e) {
+                ApiLog.i(TAG, e.getMessage());
+            }
+        }
+        totalSize = length;
+        segmentFailed.set(false);
+        segmentCompleted.set(0);
+        segmentRunning.set(segments);
+        segmentDownloaded.set(journal.committed());
+        long size = length / segments;
+        for (int i = 0; i < segments; i++) {
+            long start = i * size;
+            long end = i == segments - 1 ? length - 1 : start + size - 1;
+            Segment segment = new Segment(url, file, i, start, end, journal.committed(start, end + 1));
+            if (segment.isCompleted()) {
+                finishSegment(segment, true);
+                continue;
+            }
+            okhttp3.Request.Builder builder = createRequestBuilder(url)
+                    .header("Range", "bytes=" + segment.position() + "-" + end);
+            String ifRange = ifRange(journal);
+            if (ifRange != null) {
+                builder.header("If-Range", ifRange);
+            }
+            okHttpClient.newCall(builder.build()).enqueue(segment);
+        }
+    }
+
+    /**
+     * 验证值是否一致，任一方没有时视为一致
+     *
+     * @param value  服务器值
+     * @param stored 日志值
+     * @return
+     */
+    private boolean equalsValidator(String value, String stored) {
+        return value == null || stored == null || value.equals(stored);
+    }
+
+    /**
+     * 分段结束（完成、暂停、取消或失败），所有分段结束后发送完成信息；<br/>
+     * 需要从头重新下载时，等所有分段结束（不再写入文件和日志）后清空日志重新分段下载
+     *
+     * @param segment   分段
+     * @param completed 是否下载完成
+     */
+    protected void finishSegment(Segment segment, boolean completed) {
+        if (completed) {
+            segmentCompleted.incrementAndGet();
+        }
+        if (segmentRunning.decrementAndGet() > 0) {
+            return;
+        }
+        if (segmentRestart.compareAndSet(true, false)) {
+            if (segment.file.exists()) {
+                segment.file.delete();
+            }
+            journal.reset();
+            if (!isPause() && !isCancel()) {
+                ApiLog.i(TAG, "segments restart from 0.");
+                segmentDownloaded.set(0);
+                downloadSegments(segment.url);
+                return;
+            }
+        }
+        setDownloading(false);
+        if (segmentCompleted.get() == segments && !segmentFailed.get()) {
+            sendDownloadingMsg(totalSize, totalSize);
+            try {
+                completeDownload(segment.file);
+            } catch (IOException e) {
+                sendFailedMsg(e);
+            }
+        }
+    }
+
+    /**
+     * 下载分段
+     */
+    protected class Segment implements Callback {
+
+        /**
+         * 地址
+         */
+        final String url;
+        /**
+         * 文件
+         */
+        final File file;
+        /**
+         * 分段序号
+         */
+        final int index;
+        /**
+         * 开始位置
+         */
+        final long start;
+        /**
+         * 结束位置（包含）
+         */
+        final long end;
+        /**
+         * 已下载大小
+         */
+        long downloaded;
+
+        Segment(String url, File file, int index, long start, long end, long downloaded) {
+            this.url = url;
+            this.file = file;
+            this.index = index;
+            this.start = start;
+            this.end = end;
+            this.downloaded = downloaded;
+        }
+
+        /**
+         * @return 下一个写入位置
+         */
+        long position() {
+            return start + downloaded;
+        }
+
+        /**
+         * @return 是否已完成
+         */
+        boolean isCompleted() {
+            return position() > end;
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            ApiLog.i(TAG, "segment " + index + " " + e.getMessage());
+            fail(e);
+        }
+
+        @Override
+        public void onResponse(Call call, okhttp3.Response response) {
+            if (response.code() != 206) {
+                response.close();
+                if (response.code() == 200 && (!segmentRestarted || segmentRestart.get())) {
+                    //If-Range验证失败，文件已变化，所有分段结束后从头下载
+                    restart();
+                } else if (response.code() == 200) {
+                    //重新下载后文件仍在变化，清空日志下次从头下载
+                    journal.reset();
+                    fail(new IOException("Segment " + index + " resource changed during download"));
+                } else {
+                    fail(new IOException("Segment " + index + " range not satisfied, code: " + response.code()));
+                }
+                return;
+            }
+            BufferedSource source = response.body().source();
+            RandomAccessFile randomAccessFile = null;
+            long saved = downloaded;
+            byte[] chunk = new byte[TRANSFER_SIZE];
+            int len;
+            try {
+                randomAccessFile = new RandomAccessFile(file, "rw");
+                FileChannel channel = randomAccessFile.getChannel();
+                while (!isCompleted() && !isPause() && !isCancel() && !segmentFailed.get()) {
+                    len = transfer(source, channel, position(), chunk, (int) Math.min(chunk.length, end - position() + 1));
+                    if (len == -1) {
+                        break;
+                    }
+                    downloaded += len;
+                    if (downloaded - saved >= SEGMENT_SAVE_INTERVAL) {
+                        checkpoint(channel, start + saved, start + downloaded);
+                        saved = downloaded;
+                    }
+                    sendDownloadingMsg(totalSize, segmentDownloaded.addAndGet(len));
+                }
+                checkpoint(channel, start + saved, start + downloaded);
+                finishSegment(this, isCompleted());
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                try {
+                    source.close();
+                } catch (IOException e) {
+                    ApiLog.i(TAG, e.getMessage());
+                }
+                try {
+                    if (randomAccessFile != null)
+                        randomAccessFile.close();
+                } catch (IOException e) {
+                    ApiLog.i(TAG, e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * 文件已变化，其他分段随后停止，不发送失败信息，所有分段结束后从头下载；<br/>
+         * 已有分段失败时不再重新下载
+         */
+        void restart() {
+            if (segmentFailed.compareAndSet(false, true)) {
+                ApiLog.i(TAG, "segment " + index + " resource changed, restart from 0");
+                segmentRestarted = true;
+                segmentRestart.set(true);
+            }
+            finishSegment(this, false);
+        }
+
+        /**
+         * 分段失败，只发送一次失败信息，其他分段随后停止
+         *
+         * @param e 异常
+         */
+        void fail(IOException e) {
+            if (segmentFailed.compareAndSet(false, true)) {
+                sendFailedMsg(e);
+            }
+            finishSegment(this, false);
+        }
+
+    }
+
     /**
      * 计算已经下载过的文件大小
      *
@@ -475,13 +1090,15 @@ public class Downloader {
      */
     protected long calculateDownloadedLength(String url) {
         File file = createFile(url);
+        DownloadJournal journal = journal(file);
+        if (file.exists() && isBreakpoint() && journal.isStarted() && !journal.isCompleted()) {
+            //只从日志已提交的位置继续，文件末尾未提交的数据可能不完整
+            return journal.committed(0, journal.length());
+        }
         if (file.exists()) {
-            if (isBreakpoint()) {
-                return file.length();
-            } else {
-                file.delete();
-            }
+            file.delete();
         }
+        journal.reset();
         return 0;
     }
 
@@ -489,8 +1106,15 @@ public class Downloader {
      * 处理服务器返回数据
      */
     protected void doHttpResponse(InputStream is, long contentLength, long downloadedLength, File file) {
+        doHttpResponse(Okio.buffer(Okio.source(is)), contentLength, downloadedLength, file);
+    }
+
+    /**
+     * 处理服务器返回数据，按块从数据源写入文件通道
+     */
+    protected void doHttpResponse(BufferedSource source, long contentLength, long downloadedLength, File file) {
         long downloading = 0;
-        byte[] buf = new byte[2048];
+        byte[] chunk = new byte[TRANSFER_SIZE];
         int len;
         RandomAccessFile randomAccessFile = null;
         try {
@@ -499,9 +1123,13 @@ public class Downloader {
             } else {
                 totalSize = downloadedLength + contentLength;
             }
+            DownloadJournal journal = journal(file);
+            if (!journal.isStarted()) {
+                journal.begin(totalSize, null, null, null);
+            }
             if (totalSize == downloadedLength) {
                 //已下载字节和文件总字节相等，说明下载已经完成了
-                sendCompletedMsg(file);
+                completeDownload(file);
                 return;
             }
             if (totalSize == 0) {
@@ -509,7 +1137,7 @@ public class Downloader {
                     sendFailedMsg(new IOException("The file length value is 0 and cannot be downloaded properly"));
                 } else {
                     if (isBreakpoint()) {
-                        sendCompletedMsg(file);
+                        completeDownload(file);
                     } else {
                         file.delete();
                     }
@@ -517,27 +1145,39 @@ public class Downloader {
                 return;
             }
             randomAccessFile = new RandomAccessFile(file, "rw");
-            randomAccessFile.seek(downloadedLength);
-            while ((len = is.read(buf)) != -1) {
-                if (isPause() || isCancel()) {
+            FileChannel channel = randomAccessFile.getChannel();
+            long committed = downloadedLength;
+            while (!isPause() && !isCancel()) {
+                len = transfer(source, channel, downloadedLength + downloading, chunk, chunk.length);
+                if (len == -1) {
                     break;
                 }
-                randomAccessFile.write(buf, 0, len);
                 downloading += len;
                 long downSum = downloading + downloadedLength;
+                if (downSum - committed >= SEGMENT_SAVE_INTERVAL) {
+                    checkpoint(channel, committed, downSum);
+                    committed = downSum;
+                }
                 //传递更新信息
                 sendDownloadingMsg(totalSize, downSum);
             }
+            checkpoint(channel, committed, downloadedLength + downloading);
             randomAccessFile.close();
-            sendCompletedMsg(file);
+            //暂停、取消时不是下载完成
+            if (!isPause() && !isCancel()) {
+                if (totalSize > 0 && downloadedLength + downloading < totalSize) {
+                    throw new IOException("Unexpected end of stream, " + (downloadedLength + downloading) + "/" + totalSize);
+                }
+                completeDownload(file);
+            }
         } catch (Exception e) {
             ApiLog.i(TAG, e.getMessage());
             sendFailedMsg(e);
         } finally {
             setDownloading(false);
             try {
-                if (is != null)
-                    is.close();
+                if (source != null)
+                    source.close();
             } catch (IOException e) {
                 sendFailedMsg(e);
             }
@@ -550,12 +1190,80 @@ public class Downloader {
         }
     }
 
+    /**
+     * 检查点：文件数据写入磁盘后提交区间到日志
+     *
+     * @param channel 文件通道
+     * @param start   开始位置
+     * @param end     结束位置（不包含）
+     * @throws IOException
+     */
+    protected void checkpoint(FileChannel channel, long start, long end) throws IOException {
+        if (end <= start) {
+            return;
+        }
+        channel.force(false);
+        journal.commit(start, end);
+    }
+
+    /**
+     * 完成下载：计算SHA-256，与服务器摘要（Digest头）校验后写入完成记录
+     *
+     * @param file 文件
+     * @throws IOException 校验失败时删除文件和日志
+     */
+    protected void completeDownload(File file) throws IOException {
+        DownloadJournal journal = journal(file);
+        String sha256 = DownloadJournal.sha256(file);
+        String digest = journal.digest();
+        if (digest != null && !digest.equalsIgnoreCase(sha256)) {
+            file.delete();
+            journal.reset();
+            throw new IOException("SHA-256 mismatch, expected: " + digest + " , actual: " + sha256);
+        }
+        journal.complete(sha256);
+        sendCompletedMsg(file);
+    }
+
+    /**
+     * 读取一块数据写入文件通道指定位置（不移动文件指针，无需seek）<br/>
+     * 读满一块（limit）或数据源结束后一次写入，写入前按{@link Bandwidth}限速。
+     *
+     * @param source   数据源
+     * @param channel  文件通道
+     * @param position 写入位置
+     * @param chunk    复用的块
+     * @param limit    最大读取大小
+     * @return 写入大小，数据源结束时为-1
+     * @throws IOException
+     */
+    protected int transfer(BufferedSource source, FileChannel channel, long position, byte[] chunk, int limit) throws IOException {
+        int size = 0;
+        while (size < limit) {
+            int read = source.read(chunk, size, limit - size);
+            if (read == -1) {
+                break;
+            }
+            size += read;
+        }
+        if (size == 0) {
+            return -1;
+        }
+        Bandwidth.acquire().throttle(host, rateLimiter, size);
+        ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, size);
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return size;
+    }
+
     /**
      * 发送成功的信息
      *
      * @param file
      */
     protected void sendCompletedMsg(File file) {
+        progressDispatcher.flush();
         Message msg = handler.obtainMessage();
         msg.what = WHAT_DOWNLOAD_COMPLETED;
         msg.obj = file;
@@ -569,6 +1277,7 @@ public class Downloader {
      * @param e 文件异常
      */
     protected void sendFailedMsg(Exception e) {
+        progressDispatcher.flush();
         Message msg = handler.obtainMessage();
         msg.what = WHAT_DOWNLOAD_FAILED;
         msg.obj = e;
@@ -582,13 +1291,19 @@ public class Downloader {
      * @param progress 文件进度
      */
     protected void sendDownloadingMsg(long total, long progress) {
-        Message message = handler.obtainMessage();
-        message.what = WHAT_DOWNLOADING;
-        Bundle bundle = new Bundle();
-        bundle.putLong("total", total);
-        bundle.putLong("progress", progress);
-        message.setData(bundle);
-        handler.sendMessage(message);
+        progressDispatcher.update(total, progress);
+    }
+
+    /**
+     * 下载进度回调（合并后，Handler线程）
+     *
+     * @param total    文件总大小
+     * @param progress 文件进度
+     */
+    protected void onDownloadProgress(long total, long progress) {
+        if (onDownloadListener != null) {
+            onDownloadListener.onDownloading(total, progress);
+        }
     }
 
     private class DownloadHandler extends Handler {
@@ -603,10 +1318,7 @@ public class Downloader {
             Object obj = msg.obj;
             switch (msg.what) {
                 case WHAT_DOWNLOADING:
-                    long total = data.getLong("total");
-                    long progress = data.getLong("progress");
-                    addCacheLength(context, url, total);
-                    onDownloadListener.onDownloading(total, progress);
+                    onDownloadProgress(data.getLong("total"), data.getLong("progress"));
                     break;
                 case WHAT_DOWNLOAD_COMPLETED:
                     ApiLog.i(TAG, "download completed.");
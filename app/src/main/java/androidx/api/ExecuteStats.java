@@ -0,0 +1,134 @@
+package androidx.api;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 同步请求统计<br/>
+ * {@link OkApi#execute(android.content.Context, int, String, RequestParams)}在调用线程执行，不经过调度器，<br/>
+ * 单独统计进行中个数、结果个数和耗时（开始执行到读取完响应内容）。
+ */
+public class ExecuteStats {
+
+    /**
+     * 进行中个数
+     */
+    private final AtomicInteger running = new AtomicInteger();
+    /**
+     * 最大进行中个数
+     */
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    /**
+     * 成功个数（2xx）
+     */
+    private final AtomicLong succeeded = new AtomicLong();
+    /**
+     * 失败个数（非2xx、异常）
+     */
+    private final AtomicLong failed = new AtomicLong();
+    /**
+     * 超时个数，计入失败
+     */
+    private final AtomicLong timedOut = new AtomicLong();
+    /**
+     * 耗时
+     */
+    private final Histogram duration = new Histogram();
+
+    /**
+     * 开始执行
+     */
+    void begin() {
+        int current = running.incrementAndGet();
+        int max = maxRunning.get();
+        while (current > max && !maxRunning.compareAndSet(max, current)) {
+            max = maxRunning.get();
+        }
+    }
+
+    /**
+     * 执行结束
+     *
+     * @param nanos   耗时 - 单位纳秒
+     * @param succeed 是否成功
+     * @param timeout 是否超时
+     */
+    void end(long nanos, boolean succeed, boolean timeout) {
+        running.decrementAndGet();
+        duration.record(nanos);
+        if (succeed) {
+            succeeded.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+        if (timeout) {
+            timedOut.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return 进行中个数（阻塞的调用线程数）
+     */
+    public int running() {
+        return running.get();
+    }
+
+    /**
+     * @return 最大进行中个数
+     */
+    public int maxRunning() {
+        return maxRunning.get();
+    }
+
+    /**
+     * @return 成功个数
+     */
+    public long succeeded() {
+        return succeeded.get();
+    }
+
+    /**
+     * @return 失败个数
+     */
+    public long failed() {
+        return failed.get();
+    }
+
+    /**
+     * @return 超时个数
+     */
+    public long timedOut() {
+        return timedOut.get();
+    }
+
+    /**
+     * @return 耗时（开始执行到读取完响应内容）
+     */
+    public Histogram duration() {
+        return duration;
+    }
+
+    /**
+     * 重置统计
+     */
+    public void reset() {
+        maxRunning.set(running.get());
+        succeeded.set(0);
+        failed.set(0);
+        timedOut.set(0);
+        duration.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "ExecuteStats{" +
+                "running=" + running.get() +
+                ", maxRunning=" + maxRunning.get() +
+                ", succeeded=" + succeeded.get() +
+                ", failed=" + failed.get() +
+                ", timedOut=" + timedOut.get() +
+                ", duration={" + duration +
+                "}}";
+    }
+
+}
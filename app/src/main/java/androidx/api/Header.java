@@ -19,6 +19,10 @@ public class Header extends TreeMap<String, String> {
      * 连接
      */
     public static final String CONNECTION = "Connection";
+    /**
+     * 授权
+     */
+    public static final String AUTHORIZATION = "Authorization";
     /**
      * Header[自定义] - Cookie-Expires
      */
@@ -0,0 +1,132 @@
+package androidx.api;
+
+import java.util.Arrays;
+
+/**
+ * 耗时直方图<br/>
+ * 按固定的毫秒上界分桶计数，同时记录次数、总耗时和最大耗时，百分位取所在桶的上界。
+ */
+public class Histogram {
+
+    /**
+     * 桶上界 - 单位毫秒，超过最后一个上界的计入溢出桶
+     */
+    public static final long[] BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    /**
+     * 桶计数，最后一个为溢出桶
+     */
+    private final long[] counts = new long[BOUNDS.length + 1];
+    /**
+     * 次数
+     */
+    private long count;
+    /**
+     * 总耗时 - 单位纳秒
+     */
+    private long sum;
+    /**
+     * 最大耗时 - 单位纳秒
+     */
+    private long max;
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时 - 单位纳秒，小于0不记录
+     */
+    public synchronized void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        long millis = nanos / 1000000L;
+        int index = 0;
+        while (index < BOUNDS.length && millis >= BOUNDS[index]) {
+            index++;
+        }
+        counts[index]++;
+        count++;
+        sum += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    /**
+     * @return 平均耗时 - 单位毫秒
+     */
+    public synchronized double mean() {
+        return count == 0 ? 0 : sum / 1e6 / count;
+    }
+
+    /**
+     * @return 最大耗时 - 单位毫秒
+     */
+    public synchronized double max() {
+        return max / 1e6;
+    }
+
+    /**
+     * 百分位耗时
+     *
+     * @param percent 百分位（0-100）
+     * @return 所在桶的上界 - 单位毫秒，溢出桶返回最大耗时
+     */
+    public synchronized double percentile(double percent) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percent)) / 100);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(BOUNDS[i], max / 1e6);
+            }
+        }
+        return max / 1e6;
+    }
+
+    /**
+     * @return 桶计数副本，下标对应{@link #BOUNDS}，最后一个为溢出桶
+     */
+    public synchronized long[] buckets() {
+        return Arrays.copyOf(counts, counts.length);
+    }
+
+    /**
+     * 重置
+     */
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("count=").append(count);
+        builder.append(", mean=").append(String.format("%.2f", mean()));
+        builder.append(", p50=").append(percentile(50));
+        builder.append(", p90=").append(percentile(90));
+        builder.append(", p99=").append(percentile(99));
+        builder.append(", max=").append(String.format("%.2f", max()));
+        builder.append(", buckets={");
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            if (builder.charAt(builder.length() - 1) != '{') {
+                builder.append(", ");
+            }
+            builder.append(i < BOUNDS.length ? "<" + BOUNDS[i] : ">=" + BOUNDS[BOUNDS.length - 1]).append(':').append(counts[i]);
+        }
+        builder.append('}');
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,319 @@
+package androidx.api;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+
+/**
+ * 主机并发调度<br/>
+ * {@link Dispatcher}只有一个单主机并发数，设置了主机单独的并发数（{@link #maxRequestsPerHost(String, int)}）后，<br/>
+ * 调度器单主机并发数调整为所有限制中的最大值，每个主机在加入调度器之前按自己的限制排队，一个完成后加入下一个；<br/>
+ * 没有主机单独设置时直接加入调度器；<br/>
+ * 排队中取消的请求在{@link #purge()}或轮到加入时移除并立即回调失败，不占用主机并发数。
+ */
+public class HostDispatcher {
+
+    public final static String TAG = HostDispatcher.class.getSimpleName();
+
+    /**
+     * 配置
+     */
+    private final Configure configure;
+    /**
+     * 默认单主机并发数
+     */
+    private int maxRequestsPerHost;
+    /**
+     * 主机 - 并发数
+     */
+    private final Map<String, Integer> limits = new HashMap<>();
+    /**
+     * 主机 - 进行中和排队的请求
+     */
+    private final Map<String, Host> hosts = new HashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param configure 配置
+     */
+    public HostDispatcher(Configure configure) {
+        this.configure = configure;
+        this.maxRequestsPerHost = configure.dispatcher().getMaxRequestsPerHost();
+    }
+
+    /**
+     * 设置默认单主机并发数
+     *
+     * @param maxRequestsPerHost 并发数
+     */
+    public void maxRequestsPerHost(int maxRequestsPerHost) {
+        synchronized (this) {
+            this.maxRequestsPerHost = Math.max(1, maxRequestsPerHost);
+            apply(configure.dispatcher());
+        }
+        promoteAll();
+    }
+
+    /**
+     * @return 默认单主机并发数
+     */
+    public synchronized int maxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    /**
+     * 设置主机单独的并发数
+     *
+     * @param host               主机
+     * @param maxRequestsPerHost 并发数，小于等于0时移除单独设置
+     */
+    public void maxRequestsPerHost(String host, int maxRequestsPerHost) {
+        synchronized (this) {
+            if (maxRequestsPerHost <= 0) {
+                limits.remove(host);
+            } else {
+                limits.put(host, maxRequestsPerHost);
+            }
+            apply(configure.dispatcher());
+        }
+        promoteAll();
+    }
+
+    /**
+     * @param host 主机
+     * @return 主机并发数，没有单独设置时为默认单主机并发数
+     */
+    public synchronized int maxRequestsPerHost(String host) {
+        Integer limit = limits.get(host);
+        return limit == null ? maxRequestsPerHost : limit;
+    }
+
+    /**
+     * 按当前限制设置调度器单主机并发数
+     *
+     * @param dispatcher 调度器
+     */
+    public synchronized void apply(Dispatcher dispatcher) {
+        int max = maxRequestsPerHost;
+        for (Integer limit : limits.values()) {
+            max = Math.max(max, limit);
+        }
+        dispatcher.setMaxRequestsPerHost(max);
+    }
+
+    /**
+     * 请求加入调度
+     *
+     * @param call     请求
+     * @param callback 回调
+     */
+    public void enqueue(Call call, Callback callback) {
+        configure.dispatchInterceptor().enqueued(call);
+        String host = call.request().url().host();
+        boolean limited;
+        synchronized (this) {
+            limited = !limits.isEmpty();
+            if (limited) {
+                Host entry = host(host);
+                if (entry.running >= maxRequestsPerHost(host)) {
+                    entry.ready.add(new Pending(call, callback));
+                    return;
+                }
+                entry.running++;
+            }
+        }
+        call.enqueue(limited ? new HostCallback(host, callback) : callback);
+    }
+
+    /**
+     * 移除所有主机已取消的排队请求并立即回调失败，不等待主机空出并发数
+     */
+    public void purge() {
+        List<Pending> cancelled = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Host>> hostIterator = hosts.entrySet().iterator();
+            while (hostIterator.hasNext()) {
+                Host entry = hostIterator.next().getValue();
+                Iterator<Pending> iterator = entry.ready.iterator();
+                while (iterator.hasNext()) {
+                    Pending pending = iterator.next();
+                    if (pending.call.isCanceled()) {
+                        iterator.remove();
+                        cancelled.add(pending);
+                    }
+                }
+                if (entry.ready.isEmpty() && entry.running <= 0) {
+                    hostIterator.remove();
+                }
+            }
+        }
+        for (Pending pending : cancelled) {
+            pending.cancelled();
+        }
+    }
+
+    /**
+     * @param host 主机
+     * @return 主机排队的请求数
+     */
+    public synchronized int readyCount(String host) {
+        Host entry = hosts.get(host);
+        return entry == null ? 0 : entry.ready.size();
+    }
+
+    /**
+     * @param host 主机
+     * @return 主机进行中的请求数（已加入调度器）
+     */
+    public synchronized int runningCount(String host) {
+        Host entry = hosts.get(host);
+        return entry == null ? 0 : entry.running;
+    }
+
+    private Host host(String host) {
+        Host entry = hosts.get(host);
+        if (entry == null) {
+            entry = new Host();
+            hosts.put(host, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * 请求完成，加入下一个排队的请求
+     *
+     * @param host 主机
+     */
+    private void finished(String host) {
+        synchronized (this) {
+            Host entry = hosts.get(host);
+            if (entry != null) {
+                entry.running--;
+            }
+        }
+        promote(host);
+    }
+
+    /**
+     * 限制变化后加入所有主机可以开始的排队请求
+     */
+    private void promoteAll() {
+        List<String> queued;
+        synchronized (this) {
+            queued = new ArrayList<>(hosts.keySet());
+        }
+        for (String host : queued) {
+            promote(host);
+        }
+    }
+
+    /**
+     * 按限制加入排队的请求，已取消的请求不加入，直接回调失败
+     *
+     * @param host 主机
+     */
+    private void promote(String host) {
+        while (true) {
+            Pending pending;
+            boolean canceled;
+            synchronized (this) {
+                Host entry = hosts.get(host);
+                if (entry == null) {
+                    return;
+                }
+                boolean unlimited = limits.isEmpty();
+                if (entry.ready.isEmpty() || (!unlimited && entry.running >= maxRequestsPerHost(host))) {
+                    if (entry.ready.isEmpty() && entry.running <= 0) {
+                        hosts.remove(host);
+                    }
+                    return;
+                }
+                pending = entry.ready.poll();
+                canceled = pending.call.isCanceled();
+                if (!canceled) {
+                    entry.running++;
+                }
+            }
+            if (canceled) {
+                pending.cancelled();
+                continue;
+            }
+            pending.call.enqueue(new HostCallback(host, pending.callback));
+        }
+    }
+
+    /**
+     * 主机进行中和排队的请求
+     */
+    private static class Host {
+
+        int running;
+        final ArrayDeque<Pending> ready = new ArrayDeque<>();
+
+    }
+
+    /**
+     * 排队的请求
+     */
+    private static class Pending {
+
+        final Call call;
+        final Callback callback;
+
+        Pending(Call call, Callback callback) {
+            this.call = call;
+            this.callback = callback;
+        }
+
+        /**
+         * 排队中已取消，回调失败
+         */
+        void cancelled() {
+            callback.onFailure(call, new IOException("Canceled"));
+        }
+
+    }
+
+    /**
+     * 完成后加入下一个排队请求的回调
+     */
+    private class HostCallback implements Callback {
+
+        private final String host;
+        private final Callback callback;
+
+        HostCallback(String host, Callback callback) {
+            this.host = host;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            try {
+                callback.onFailure(call, e);
+            } finally {
+                finished(host);
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, okhttp3.Response response) throws IOException {
+            try {
+                callback.onResponse(call, response);
+            } finally {
+                finished(host);
+            }
+        }
+
+    }
+
+}
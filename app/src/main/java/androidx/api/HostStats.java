@@ -0,0 +1,116 @@
+package androidx.api;
+
+import okhttp3.Protocol;
+
+/**
+ * 主机连接统计<br/>
+ * 协商协议、连接数、流（请求）数、单连接最大并发流数以及获取连接耗时（连接池查找、建立连接和握手，不含调度器排队）。<br/>
+ */
+public class HostStats {
+
+    /**
+     * 主机
+     */
+    private final String host;
+    /**
+     * 最近一次协商的协议
+     */
+    private volatile Protocol protocol;
+    /**
+     * 连接数
+     */
+    private long connections;
+    /**
+     * 流（请求）数
+     */
+    private long streams;
+    /**
+     * 单连接最大并发流数
+     */
+    private int maxConcurrentStreams;
+    /**
+     * 获取连接总耗时 - 单位毫秒
+     */
+    private long connectionAcquireDelay;
+    /**
+     * 最大获取连接耗时 - 单位毫秒
+     */
+    private long maxConnectionAcquireDelay;
+
+    public HostStats(String host) {
+        this.host = host;
+    }
+
+    /**
+     * 记录一次流
+     *
+     * @param protocol          协议
+     * @param newConnection     是否新建连接
+     * @param concurrentStreams 当前连接并发流数
+     * @param delay             获取连接耗时 - 单位毫秒
+     */
+    synchronized void record(Protocol protocol, boolean newConnection, int concurrentStreams, long delay) {
+        this.protocol = protocol;
+        if (newConnection) {
+            connections++;
+        }
+        streams++;
+        maxConcurrentStreams = Math.max(maxConcurrentStreams, concurrentStreams);
+        if (delay >= 0) {
+            connectionAcquireDelay += delay;
+            maxConnectionAcquireDelay = Math.max(maxConnectionAcquireDelay, delay);
+        }
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public Protocol protocol() {
+        return protocol;
+    }
+
+    public synchronized long connections() {
+        return connections;
+    }
+
+    public synchronized long streams() {
+        return streams;
+    }
+
+    /**
+     * @return 平均每个连接承载的流数
+     */
+    public synchronized double streamsPerConnection() {
+        return connections == 0 ? 0 : (double) streams / connections;
+    }
+
+    public synchronized int maxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    /**
+     * @return 平均获取连接耗时 - 单位毫秒
+     */
+    public synchronized double averageConnectionAcquireDelay() {
+        return streams == 0 ? 0 : (double) connectionAcquireDelay / streams;
+    }
+
+    public synchronized long maxConnectionAcquireDelay() {
+        return maxConnectionAcquireDelay;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "HostStats{" +
+                "host='" + host + '\'' +
+                ", protocol=" + protocol +
+                ", connections=" + connections +
+                ", streams=" + streams +
+                ", maxConcurrentStreams=" + maxConcurrentStreams +
+                ", averageConnectionAcquireDelay=" + averageConnectionAcquireDelay() +
+                ", maxConnectionAcquireDelay=" + maxConnectionAcquireDelay +
+                '}';
+    }
+
+}
@@ -5,10 +5,8 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.lang.reflect.Array;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -223,17 +221,7 @@ public class JSON {
         if (fieldName == null || fieldName.length() == 0) {
             return false;
         }
-        Field[] fields = findClassDeclaredFields(clazz);
-        for (int i = 0; i < fields.length; i++) {
-            String name = fields[i].getName();
-            if (name == null) {
-                return false;
-            }
-            if (fieldName.equals(name)) {
-                return true;
-            }
-        }
-        return false;
+        return ClassBinding.of(clazz).field(fieldName) != null;
     }
 
     /**
@@ -435,19 +423,174 @@ public class JSON {
         }
     }
 
+    /**
+     * 设置基础数据类型字段值，直接使用JSON解析出的值，不转字符再解析（规则与{@link #setFieldValue}一致）
+     *
+     * @param field     字段
+     * @param bean      对象
+     * @param fieldType 字段类型（基础数据类型）
+     * @param value     JSON值
+     * @return 是否已处理，false时需要按字符方式处理
+     */
+    public boolean setPrimitiveValue(Field field, Object bean, Class<?> fieldType, Object value) {
+        try {
+            if (fieldType == int.class) {
+                setInt(field, bean, value);
+            } else if (fieldType == long.class) {
+                setLong(field, bean, value);
+            } else if (fieldType == double.class) {
+                setDouble(field, bean, value);
+            } else if (fieldType == boolean.class) {
+                setBoolean(field, bean, value);
+            } else if (fieldType == float.class) {
+                setFloat(field, bean, value);
+            } else if (fieldType == short.class) {
+                setShort(field, bean, value);
+            } else {
+                return false;
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+        return true;
+    }
+
+    /**
+     * @param value JSON值
+     * @return 是否整数值
+     */
+    private boolean isInteger(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * @param value JSON值
+     * @return 非数字值对应的字符，空值、空字符和"null"为空字符
+     */
+    private String text(Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            return "";
+        }
+        return nonempty(value instanceof String ? (String) value : String.valueOf(value));
+    }
+
+    /**
+     * 设置int字段值，小数忽略
+     *
+     * @param field 字段
+     * @param bean  对象
+     * @param value JSON值
+     * @throws IllegalAccessException
+     */
+    public void setInt(Field field, Object bean, Object value) throws IllegalAccessException {
+        if (isInteger(value)) {
+            field.setInt(bean, ((Number) value).intValue());
+        } else if (!(value instanceof Number)) {
+            String text = text(value);
+            if (!isDecimal(text)) {
+                field.setInt(bean, text.length() == 0 ? 0 : Integer.parseInt(text));
+            }
+        }
+    }
+
+    /**
+     * 设置short字段值，小数忽略
+     *
+     * @param field 字段
+     * @param bean  对象
+     * @param value JSON值
+     * @throws IllegalAccessException
+     */
+    public void setShort(Field field, Object bean, Object value) throws IllegalAccessException {
+        if (isInteger(value)) {
+            field.setShort(bean, ((Number) value).shortValue());
+        } else if (!(value instanceof Number)) {
+            String text = text(value);
+            if (!isDecimal(text)) {
+                field.setShort(bean, text.length() == 0 ? 0 : Short.parseShort(text));
+            }
+        }
+    }
+
+    /**
+     * 设置long字段值，小数忽略
+     *
+     * @param field 字段
+     * @param bean  对象
+     * @param value JSON值
+     * @throws IllegalAccessException
+     */
+    public void setLong(Field field, Object bean, Object value) throws IllegalAccessException {
+        if (isInteger(value)) {
+            field.setLong(bean, ((Number) value).longValue());
+        } else if (!(value instanceof Number)) {
+            String text = text(value);
+            if (!isDecimal(text)) {
+                field.setLong(bean, text.length() == 0 ? 0 : Long.parseLong(text));
+            }
+        }
+    }
+
+    /**
+     * 设置double字段值
+     *
+     * @param field 字段
+     * @param bean  对象
+     * @param value JSON值
+     * @throws IllegalAccessException
+     */
+    public void setDouble(Field field, Object bean, Object value) throws IllegalAccessException {
+        if (value instanceof Number) {
+            field.setDouble(bean, ((Number) value).doubleValue());
+        } else {
+            String text = text(value);
+            field.setDouble(bean, text.length() == 0 ? 0 : Double.parseDouble(text));
+        }
+    }
+
+    /**
+     * 设置float字段值
+     *
+     * @param field 字段
+     * @param bean  对象
+     * @param value JSON值
+     * @throws IllegalAccessException
+     */
+    public void setFloat(Field field, Object bean, Object value) throws IllegalAccessException {
+        if (value instanceof Number) {
+            field.setFloat(bean, ((Number) value).floatValue());
+        } else {
+            String text = text(value);
+            field.setFloat(bean, text.length() == 0 ? 0 : Float.parseFloat(text));
+        }
+    }
+
+    /**
+     * 设置boolean字段值，true或1为true
+     *
+     * @param field 字段
+     * @param bean  对象
+     * @param value JSON值
+     * @throws IllegalAccessException
+     */
+    public void setBoolean(Field field, Object bean, Object value) throws IllegalAccessException {
+        if (value instanceof Boolean) {
+            field.setBoolean(bean, (Boolean) value);
+        } else if (isInteger(value)) {
+            field.setBoolean(bean, ((Number) value).longValue() == 1);
+        } else {
+            String text = text(value);
+            field.setBoolean(bean, text.equals("true") || text.equals("1"));
+        }
+    }
+
     /**
      * @param clazz 类
      * @param name  字段名称
      * @return 本类及其父类寻找是否有此类
      */
     public Field findClassField(Class clazz, String name) {
-        for (Field field : findClassDeclaredFields(clazz)) {
-            field.setAccessible(true);
-            if (field.getName().equals(name)) {
-                return field;
-            }
-        }
-        return null;
+        return ClassBinding.of(clazz).field(name);
     }
 
     /**
@@ -513,32 +656,8 @@ public class JSON {
      * @return
      */
     public <T> T toBean(Class<T> clazz) {
-        T bean = null;
-        try {
-            //获取到所有访问权限的构造函数（包括private的构造函数）
-            Constructor<?>[] constructors = clazz.getDeclaredConstructors();
-            if (constructors.length == 0) {
-                bean = clazz.newInstance();
-            } else {
-                Constructor constructor = null;
-                for (Constructor item : constructors) {
-                    if (item.getParameterTypes().length == 0) {
-                        constructor = item;
-                    }
-                }
-                if (constructor != null) {
-                    constructor.setAccessible(true);
-                    bean = (T) constructor.newInstance();
-                }
-            }
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        } catch (InstantiationException e) {
-            throw new RuntimeException(e);
-        }
-        return bean;
+        //获取到所有访问权限的构造函数（包括private的构造函数）
+        return (T) ClassBinding.of(clazz).newInstance();
     }
 
     /**
@@ -558,13 +677,22 @@ public class JSON {
         if (Enum.class.isAssignableFrom(clazz)) {
             return (T) toEnum(object.toString(), clazz);
         }
+        //编译期生成的适配器（泛型占位符需要反射解析）
+        if (variableTypeMap == null) {
+            JSONAdapter<T> adapter = JSONAdapters.get(clazz);
+            if (adapter != null) {
+                return adapter.toObject(object);
+            }
+        }
         //获取到所有访问权限的构造函数（包括private的构造函数）
-        bean = toBean(clazz);
+        ClassBinding binding = ClassBinding.of(clazz);
+        bean = (T) binding.newInstance();
         Iterator<String> iterator = object.keys();
         while (iterator.hasNext()) {
             String key = iterator.next();
-            if (isDeclaredField(clazz, key)) {
-                setObjectValue(clazz, variableTypeMap, bean, object, key);
+            ClassBinding.Property property = binding.property(key);
+            if (property != null) {
+                setObjectValue(property, variableTypeMap, bean, object, key);
             }
         }
         return bean;
@@ -650,13 +778,36 @@ public class JSON {
      * @param <T>             实体
      */
     public <T> void setObjectValue(Class<T> clazz, Map<String, Class<?>> variableTypeMap, T clazzBean, JSONObject object, String key) {
+        ClassBinding.Property property = ClassBinding.of(clazz).property(key);
+        if (property != null) {
+            setObjectValue(property, variableTypeMap, clazzBean, object, key);
+        }
+    }
+
+    /**
+     * 设置对象值
+     *
+     * @param property        字段属性
+     * @param variableTypeMap 占位泛型
+     * @param clazzBean       对象实例化
+     * @param object          json对象
+     * @param key             JSON字段名称
+     * @param <T>             实体
+     */
+    public <T> void setObjectValue(ClassBinding.Property property, Map<String, Class<?>> variableTypeMap, T clazzBean, JSONObject object, String key) {
         try {
-            Field field = findClassField(clazz, key);
+            Field field = property.field;
             if (field != null) {
-                field.setAccessible(true);
                 Object value = object.get(key);
+                Class<?> fieldType = property.typeVariable ? getType(field, variableTypeMap) : property.type;
+                //基础数据类型直接赋值，不转字符
+                if (fieldType.isPrimitive() && setPrimitiveValue(field, clazzBean, fieldType, value)) {
+                    if (debug) {
+                        print("Primitive", key + " " + fieldType + " " + value);
+                    }
+                    return;
+                }
                 String valueString = nonempty(String.valueOf(value));
-                Class<?> fieldType = getType(field, variableTypeMap);
                 String log = debug ? key + " " + fieldType + " " + valueString : "";
                 if (isPrimitive(fieldType)) {
                     //Primitive
@@ -666,9 +817,12 @@ public class JSON {
                     //Collection
                     if (Collection.class.isAssignableFrom(fieldType)) {
                         print("Collection", log);
-                        Type[] typeArguments = getGenericParameterType(field);
-                        if (typeArguments.length > 0) {
-                            Class paramsClazz = getGenericParameterClass(typeArguments[0]);
+                        Class paramsClazz = property.typeVariable ? null : property.parameterType;
+                        if (paramsClazz == null) {
+                            Type[] typeArguments = getGenericParameterType(field);
+                            paramsClazz = typeArguments.length > 0 ? getGenericParameterClass(typeArguments[0]) : null;
+                        }
+                        if (paramsClazz != null) {
                             print(paramsClazz);
                             if (isPrimitive(paramsClazz)) {
                                 field.set(clazzBean, toCollection(valueString, fieldType, paramsClazz, variableTypeMap));
@@ -1098,17 +1252,7 @@ public class JSON {
      * @return 当前类及其父类类声明字段
      */
     public Field[] findClassDeclaredFields(Class clazz) {
-        List<Field> fields = new ArrayList<>();
-        while (clazz != null) {
-            for (Field field : clazz.getDeclaredFields()) {
-                if (isCustomField(field)) {
-                    field.setAccessible(true);
-                    fields.add(field);
-                }
-            }
-            clazz = clazz.getSuperclass();
-        }
-        return fields.toArray(new Field[fields.size()]);
+        return ClassBinding.of(clazz).fields().clone();
     }
 
     /**
@@ -1165,94 +1309,14 @@ public class JSON {
     }
 
     /**
+     * 对象转JSON，一次遍历直接写入缓冲区，见{@link JSONWriter}
+     *
      * @param obj 对象
      * @return json字符
      */
     public String toJson(Object obj) {
-        if (obj == null) {
-            return "{}";
-        }
         print("[───────────────────────────────────JSON───────────────────────────────────]");
-        Class<?> cls = obj.getClass();
-        if (String.class.isAssignableFrom(cls)) {
-            JSONObject object = new JSONObject();
-            put(object, "text", obj);
-            print("String", cls);
-            return String.valueOf(object);
-        } else if (JSONObject.class.isAssignableFrom(cls)) {
-            print("JSONObject", cls);
-            return String.valueOf(obj);
-        } else if (JSONArray.class.isAssignableFrom(cls)) {
-            print("JSONArray", cls);
-            return String.valueOf(obj);
-        } else if (Collection.class.isAssignableFrom(cls)) {
-            //Collection
-            JSONArray jsonArray = new JSONArray();
-            Collection collection = (Collection) obj;
-            int count = collection == null ? 0 : collection.size();
-            print("Collection", cls, "count", "=", count);
-            //基本类型集合
-            List<Object> primitiveArray = new ArrayList<>();
-            Iterator<?> iterator = collection.iterator();
-            while (iterator.hasNext()) {
-                Object element = iterator.next();
-                if (isPrimitive(element == null ? null : element.getClass())) {
-                    primitiveArray.add(element);
-                } else {
-                    jsonArray.put(newJSONObject(toJson(element)));
-                }
-            }
-            if (primitiveArray.size() > 0) {
-                jsonArray = new JSONArray(primitiveArray);
-            }
-            print("Collection", cls, jsonArray);
-            return jsonArray.toString();
-        } else if (Map.class.isAssignableFrom(cls)) {
-            //Map
-            print("Map", cls);
-            JSONObject jsonObject = new JSONObject();
-            Map<String, Object> objMap = (Map<String, Object>) obj;
-            for (String key : objMap.keySet()) {
-                Object objValue = objMap.get(key);
-                addJSONObjectKeyValue(jsonObject, key, objValue);
-            }
-            return jsonObject.toString();
-        } else if (cls.isArray()) {
-            //Array
-            print("Array", cls);
-            JSONArray jsonArray = new JSONArray();
-            for (int i = 0; i < Array.getLength(obj); i++) {
-                jsonArray.put(Array.get(obj, i));
-            }
-            return jsonArray.toString();
-        } else {
-            //普通类
-            print("Object", cls);
-            JSONObject jsonObject = new JSONObject();
-            Field[] fields = findClassDeclaredFields(cls);
-            if (fields.length == 0) {
-                return jsonObject.toString();
-            }
-            for (Field field : fields) {
-                field.setAccessible(true);
-                Class<?> type = field.getGenericType().getClass();
-                String name = field.getName();
-                if (type != null) {
-                    try {
-                        //普通类型
-                        Object value = field.get(obj);
-                        if (isPrimitive(type)) {
-                            jsonObject.put(name, value);
-                        } else {
-                            addJSONObjectKeyValue(jsonObject, name, value);
-                        }
-                    } catch (IllegalAccessException | JSONException e) {
-                       throw new RuntimeException(e);
-                    }
-                }
-            }
-            return jsonObject.toString();
-        }
+        return JSONWriter.acquire().toJson(obj);
     }
 
     /**
@@ -0,0 +1,26 @@
+package androidx.api;
+
+import org.json.JSONObject;
+
+/**
+ * JSON实体适配器<br/>
+ * 由processor模块根据{@link JSONBean}在编译期生成，直接读取字段赋值，不使用反射。<br/>
+ *
+ * @param <T> 实体
+ */
+public interface JSONAdapter<T> {
+
+    /**
+     * 适配器类名后缀
+     */
+    String SUFFIX = "_JSONAdapter";
+
+    /**
+     * JSONObject转实体
+     *
+     * @param object JSONObject
+     * @return 实体
+     */
+    T toObject(JSONObject object);
+
+}
@@ -0,0 +1,312 @@
+package androidx.api;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON实体适配器查找及生成代码辅助方法<br/>
+ * 适配器按类名约定查找（包名.外部类_内部类_JSONAdapter），每个类只查找一次，<br/>
+ * 没有生成适配器的类返回空，由{@link JSON}继续使用反射解析。<br/>
+ * 取值规则与{@link JSON#setFieldValue}保持一致：整数字段遇到小数时忽略，空字符按0处理。
+ */
+public final class JSONAdapters {
+
+    /**
+     * 没有适配器
+     */
+    private static final Object NONE = new Object();
+    /**
+     * 类 - 适配器
+     */
+    private static final Map<Class<?>, Object> adapters = new ConcurrentHashMap<>();
+
+    private JSONAdapters() {
+
+    }
+
+    /**
+     * 获取生成的适配器
+     *
+     * @param clazz 实体类
+     * @param <T>   实体
+     * @return 适配器，未生成时为空
+     */
+    public static <T> JSONAdapter<T> get(Class<T> clazz) {
+        if (clazz == null || clazz.isPrimitive() || clazz.isArray() || clazz.isInterface()) {
+            return null;
+        }
+        Object adapter = adapters.get(clazz);
+        if (adapter == null) {
+            adapter = find(clazz);
+            adapters.put(clazz, adapter);
+        }
+        return adapter == NONE ? null : (JSONAdapter<T>) adapter;
+    }
+
+    /**
+     * 注册适配器，可用于手写适配器或测试
+     *
+     * @param clazz   实体类
+     * @param adapter 适配器，为空时移除
+     * @param <T>     实体
+     */
+    public static <T> void register(Class<T> clazz, JSONAdapter<T> adapter) {
+        adapters.put(clazz, adapter == null ? NONE : adapter);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clear() {
+        adapters.clear();
+    }
+
+    /**
+     * @param clazz 实体类
+     * @return 适配器类名
+     */
+    public static String adapterName(Class<?> clazz) {
+        String name = clazz.getName();
+        int index = name.lastIndexOf('.');
+        String packageName = index == -1 ? "" : name.substring(0, index + 1);
+        return packageName + name.substring(index + 1).replace('$', '_') + JSONAdapter.SUFFIX;
+    }
+
+    /**
+     * 查找适配器
+     *
+     * @param clazz 实体类
+     * @return
+     */
+    private static Object find(Class<?> clazz) {
+        String name = clazz.getName();
+        if (name.startsWith("java.") || name.startsWith("android.") || name.startsWith("org.json.")) {
+            return NONE;
+        }
+        try {
+            Class<?> adapterClass = Class.forName(adapterName(clazz), true, clazz.getClassLoader());
+            if (JSONAdapter.class.isAssignableFrom(adapterClass)) {
+                return adapterClass.newInstance();
+            }
+        } catch (ClassNotFoundException e) {
+            return NONE;
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        } catch (InstantiationException e) {
+            throw new RuntimeException(e);
+        }
+        return NONE;
+    }
+
+    /**
+     * @param value JSON值
+     * @return 是否空值
+     */
+    public static boolean isNull(Object value) {
+        return value == null || value == JSONObject.NULL;
+    }
+
+    /**
+     * @param value        JSON值
+     * @param defaultValue 无法转换时的值
+     * @return int值
+     */
+    public static int toInt(Object value, int defaultValue) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof Number) {
+            return defaultValue;
+        }
+        String text = String.valueOf(value);
+        if (text.length() == 0) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @param value        JSON值
+     * @param defaultValue 无法转换时的值
+     * @return long值
+     */
+    public static long toLong(Object value, long defaultValue) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number) {
+            return defaultValue;
+        }
+        String text = String.valueOf(value);
+        if (text.length() == 0) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @param value        JSON值
+     * @param defaultValue 无法转换时的值
+     * @return short值
+     */
+    public static short toShort(Object value, short defaultValue) {
+        return (short) toInt(value, defaultValue);
+    }
+
+    /**
+     * @param value        JSON值
+     * @param defaultValue 无法转换时的值
+     * @return byte值
+     */
+    public static byte toByte(Object value, byte defaultValue) {
+        return (byte) toInt(value, defaultValue);
+    }
+
+    /**
+     * @param value        JSON值
+     * @param defaultValue 无法转换时的值
+     * @return double值
+     */
+    public static double toDouble(Object value, double defaultValue) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        String text = String.valueOf(value);
+        if (text.length() == 0) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @param value        JSON值
+     * @param defaultValue 无法转换时的值
+     * @return float值
+     */
+    public static float toFloat(Object value, float defaultValue) {
+        return (float) toDouble(value, defaultValue);
+    }
+
+    /**
+     * @param value JSON值
+     * @return boolean值，true或1为true
+     */
+    public static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue() == 1;
+        }
+        String text = String.valueOf(value);
+        return text.equals("true") || text.equals("1");
+    }
+
+    /**
+     * @param value        JSON值
+     * @param defaultValue 空字符时的值
+     * @return char值
+     */
+    public static char toChar(Object value, char defaultValue) {
+        String text = String.valueOf(value);
+        return text.length() == 0 ? defaultValue : text.charAt(0);
+    }
+
+    /**
+     * @param value JSON值
+     * @return 字符
+     */
+    public static String toString(Object value) {
+        return JSON.acquire().nonempty(String.valueOf(value));
+    }
+
+    /**
+     * 非基础数据类型取值
+     *
+     * @param value         JSON值
+     * @param type          字段类型
+     * @param parameterType 集合字段泛型参数类
+     * @return 字段值，为空时不赋值
+     */
+    public static Object read(Object value, Class<?> type, Class<?> parameterType) {
+        if (isNull(value)) {
+            return null;
+        }
+        JSON json = JSON.acquire();
+        if (type == String.class || type == CharSequence.class) {
+            return toString(value);
+        }
+        if (type == Character.class) {
+            String text = String.valueOf(value);
+            return text.length() == 0 ? null : text.charAt(0);
+        }
+        if (type == Boolean.class) {
+            return toBoolean(value);
+        }
+        if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class) {
+            if (value instanceof Double || value instanceof Float || json.isDecimal(String.valueOf(value))) {
+                return null;
+            }
+            long number = toLong(value, 0);
+            if (type == Integer.class) {
+                return (int) number;
+            }
+            if (type == Short.class) {
+                return (short) number;
+            }
+            if (type == Byte.class) {
+                return (byte) number;
+            }
+            return number;
+        }
+        if (type == Double.class) {
+            return toDouble(value, 0);
+        }
+        if (type == Float.class) {
+            return toFloat(value, 0);
+        }
+        String text = json.nonempty(String.valueOf(value));
+        if (Collection.class.isAssignableFrom(type)) {
+            if (parameterType == null || !(value instanceof JSONArray)) {
+                return null;
+            }
+            if (Map.class.isAssignableFrom(parameterType)) {
+                return json.toMapCollection((JSONArray) value);
+            }
+            return json.toCollection(text, type, parameterType, null);
+        }
+        if (type.isArray()) {
+            return value instanceof JSONArray ? json.toArray(type.getComponentType(), (JSONArray) value) : null;
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return value instanceof JSONObject ? json.toMap((JSONObject) value) : null;
+        }
+        if (JSONArray.class.isAssignableFrom(type)) {
+            return value instanceof JSONArray ? value : json.toJSONArray(text);
+        }
+        if (JSONObject.class.isAssignableFrom(type)) {
+            return value instanceof JSONObject ? value : json.toJSONObject(text);
+        }
+        if (value instanceof JSONObject) {
+            return json.toObject((JSONObject) value, type, null);
+        }
+        return json.toObject(text, type, (Map<String, Class<?>>) null);
+    }
+
+}
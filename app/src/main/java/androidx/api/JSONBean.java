@@ -0,0 +1,18 @@
+package androidx.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * JSON实体注解<br/>
+ * 添加processor模块（annotationProcessor）后，编译期为该实体生成{@link JSONAdapter}实现类（实体类名_JSONAdapter），<br/>
+ * 解析时优先使用生成的适配器，无需反射；未生成时仍使用反射解析。<br/>
+ * 要求：非private无参构造函数；private字段需要提供setXxx方法；不支持泛型占位符字段。
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface JSONBean {
+
+}
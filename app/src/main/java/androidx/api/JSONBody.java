@@ -0,0 +1,70 @@
+package androidx.api;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+/**
+ * 实体JSON请求体<br/>
+ * 实体通过{@link JSONWriter}直接序列化到缓冲区，不生成中间字符串；<br/>
+ * 只序列化一次，重复写入（日志拦截器、重试）复用缓冲区分段。<br/>
+ */
+public class JSONBody extends RequestBody {
+
+    /**
+     * 内容类型
+     */
+    private final MediaType contentType;
+    /**
+     * 实体
+     */
+    private final Object bean;
+    /**
+     * 序列化结果
+     */
+    private Buffer buffer;
+
+    /**
+     * 构造函数
+     *
+     * @param contentType 内容类型
+     * @param bean        实体
+     */
+    public JSONBody(MediaType contentType, Object bean) {
+        this.contentType = contentType;
+        this.bean = bean;
+    }
+
+    /**
+     * @return 序列化结果
+     * @throws IOException
+     */
+    private synchronized Buffer buffer() throws IOException {
+        if (buffer == null) {
+            Buffer serialized = new Buffer();
+            JSONWriter.acquire().write(serialized, bean);
+            buffer = serialized;
+        }
+        return buffer;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return buffer().size();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        Buffer source = buffer().clone();
+        sink.write(source, source.size());
+    }
+
+}
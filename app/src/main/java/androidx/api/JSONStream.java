@@ -0,0 +1,444 @@
+package androidx.api;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okio.BufferedSource;
+
+/**
+ * JSON流式解析<br/>
+ * 直接从响应流读取JSON并绑定到实体，不生成完整的byte[]和String，<br/>
+ * 字段赋值规则与{@link JSON#toObject(String, Class)}保持一致。<br/>
+ */
+public class JSONStream {
+
+    private static JSONStream instance;
+
+    private JSONStream() {
+
+    }
+
+    public static JSONStream acquire() {
+        if (instance == null) {
+            synchronized (JSONStream.class) {
+                if (instance == null) {
+                    instance = new JSONStream();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 创建读取器
+     *
+     * @param source 数据源
+     * @return
+     */
+    protected JsonReader newReader(BufferedSource source) {
+        JsonReader reader = new JsonReader(new InputStreamReader(source.inputStream(), Charset.forName("UTF-8")));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * 数据源转对象
+     *
+     * @param source 数据源
+     * @param clazz  对象类
+     * @return
+     * @throws IOException
+     */
+    public <T> T toObject(BufferedSource source, Class<T> clazz) throws IOException {
+        return toObject(source, clazz, null);
+    }
+
+    /**
+     * 数据源转对象
+     *
+     * @param source   数据源
+     * @param clazz    对象类
+     * @param variable 变量类型（泛型字段+类型）
+     * @return
+     * @throws IOException
+     */
+    public <T> T toObject(BufferedSource source, Class<T> clazz, Map<String, Class<?>> variable) throws IOException {
+        JsonReader reader = newReader(source);
+        try {
+            return (T) read(reader, clazz, clazz, variable);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 数据源转列表
+     *
+     * @param source 数据源
+     * @param clazz  列表对象类
+     * @return
+     * @throws IOException
+     */
+    public <T> List<T> toList(BufferedSource source, Class<T> clazz) throws IOException {
+        JsonReader reader = newReader(source);
+        try {
+            List<T> list = new ArrayList<>();
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                return list;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                list.add((T) read(reader, clazz, clazz, null));
+            }
+            reader.endArray();
+            return list;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 读取值
+     *
+     * @param reader      读取器
+     * @param type        类型
+     * @param genericType 泛型类型
+     * @param variable    变量类型
+     * @return
+     * @throws IOException
+     */
+    protected Object read(JsonReader reader, Class<?> type, Type genericType, Map<String, Class<?>> variable) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (type == null || type == Object.class) {
+            return readValue(reader);
+        }
+        if (type == String.class || type == CharSequence.class || type == Character.class) {
+            return readString(reader);
+        }
+        if (type.isPrimitive() || Number.class.isAssignableFrom(type) || type == Boolean.class) {
+            return readPrimitive(reader, type);
+        }
+        if (type.isEnum()) {
+            return readEnum(reader, type);
+        }
+        if (type.isArray()) {
+            List<?> list = readCollection(reader, new ArrayList<>(), type.getComponentType(), variable);
+            Object array = Array.newInstance(type.getComponentType(), list.size());
+            for (int i = 0; i < list.size(); i++) {
+                Object item = list.get(i);
+                if (item != null) {
+                    Array.set(array, i, item);
+                }
+            }
+            return array;
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            Class<?> itemType = Object.class;
+            if (genericType instanceof ParameterizedType) {
+                Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+                if (arguments.length > 0) {
+                    itemType = JSON.acquire().getGenericParameterClass(arguments[0]);
+                }
+            }
+            return readCollection(reader, JSON.acquire().toCollection(type), itemType, variable);
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return readValue(reader);
+        }
+        if (JSONObject.class.isAssignableFrom(type)) {
+            Object value = readValue(reader);
+            return value instanceof Map ? new JSONObject((Map) value) : null;
+        }
+        if (JSONArray.class.isAssignableFrom(type)) {
+            Object value = readValue(reader);
+            return value instanceof List ? new JSONArray((List) value) : null;
+        }
+        if (token != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        return readBean(reader, type, variable);
+    }
+
+    /**
+     * 读取实体
+     *
+     * @param reader   读取器
+     * @param clazz    实体类
+     * @param variable 变量类型
+     * @return
+     * @throws IOException
+     */
+    protected Object readBean(JsonReader reader, Class<?> clazz, Map<String, Class<?>> variable) throws IOException {
+        ClassBinding binding = ClassBinding.of(clazz);
+        Object bean = binding.newInstance();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            Field field = binding.field(reader.nextName());
+            if (field == null || bean == null) {
+                reader.skipValue();
+                continue;
+            }
+            try {
+                setField(reader, field, bean, variable);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        reader.endObject();
+        return bean;
+    }
+
+    /**
+     * 设置字段值，基础类型直接从读取器取值赋值
+     *
+     * @param reader   读取器
+     * @param field    字段
+     * @param bean     实体
+     * @param variable 变量类型
+     * @throws IOException
+     * @throws IllegalAccessException
+     */
+    protected void setField(JsonReader reader, Field field, Object bean, Map<String, Class<?>> variable) throws IOException, IllegalAccessException {
+        Class<?> type = field.getType();
+        if (field.getGenericType() instanceof TypeVariable && variable != null) {
+            Class<?> variableType = variable.get(field.getName());
+            type = variableType == null ? type : variableType;
+        }
+        if (type.isPrimitive() && reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return;
+        }
+        if (type.isPrimitive() && setPrimitive(reader, field, bean, type)) {
+            return;
+        }
+        Object value = read(reader, type, field.getGenericType(), variable);
+        if (value != null || !type.isPrimitive()) {
+            field.set(bean, value);
+        }
+    }
+
+    /**
+     * 基础数据类型字段直接从读取器取值赋值，不装箱（规则与{@link #readPrimitive}一致）
+     *
+     * @param reader 读取器
+     * @param field  字段
+     * @param bean   实体
+     * @param type   字段类型
+     * @return 是否已处理
+     * @throws IOException
+     * @throws IllegalAccessException
+     */
+    protected boolean setPrimitive(JsonReader reader, Field field, Object bean, Class<?> type) throws IOException, IllegalAccessException {
+        JsonToken token = reader.peek();
+        if (type == boolean.class) {
+            if (token == JsonToken.BOOLEAN) {
+                field.setBoolean(bean, reader.nextBoolean());
+            } else {
+                String value = reader.nextString();
+                field.setBoolean(bean, value.equals("true") || value.equals("1"));
+            }
+            return true;
+        }
+        if (token != JsonToken.NUMBER && token != JsonToken.STRING) {
+            reader.skipValue();
+            return true;
+        }
+        try {
+            if (type == int.class) {
+                field.setInt(bean, reader.nextInt());
+            } else if (type == long.class) {
+                field.setLong(bean, reader.nextLong());
+            } else if (type == double.class) {
+                field.setDouble(bean, reader.nextDouble());
+            } else if (type == float.class) {
+                field.setFloat(bean, (float) reader.nextDouble());
+            } else if (type == short.class) {
+                field.setShort(bean, (short) reader.nextInt());
+            } else if (type == byte.class) {
+                field.setByte(bean, (byte) reader.nextInt());
+            } else {
+                return false;
+            }
+        } catch (NumberFormatException e) {
+            //空字符、小数赋值给整数等情况
+            reader.skipValue();
+        }
+        return true;
+    }
+
+    /**
+     * 读取集合
+     *
+     * @param reader     读取器
+     * @param collection 集合
+     * @param itemType   元素类型
+     * @param variable   变量类型
+     * @return
+     * @throws IOException
+     */
+    protected <C extends Collection> C readCollection(JsonReader reader, C collection, Class<?> itemType, Map<String, Class<?>> variable) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return collection;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            collection.add(read(reader, itemType, itemType, variable));
+        }
+        reader.endArray();
+        return collection;
+    }
+
+    /**
+     * 读取字符
+     *
+     * @param reader 读取器
+     * @return
+     * @throws IOException
+     */
+    protected String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+            Object value = readValue(reader);
+            return String.valueOf(value instanceof Map ? new JSONObject((Map) value) : new JSONArray((List) value));
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * 读取基础类型，整数字段遇到小数时忽略（与{@link JSON#setFieldValue}一致）
+     *
+     * @param reader 读取器
+     * @param type   类型
+     * @return
+     * @throws IOException
+     */
+    protected Object readPrimitive(JsonReader reader, Class<?> type) throws IOException {
+        JsonToken token = reader.peek();
+        if (type == boolean.class || type == Boolean.class) {
+            if (token == JsonToken.BOOLEAN) {
+                return reader.nextBoolean();
+            }
+            String value = reader.nextString();
+            return value.equals("true") || value.equals("1");
+        }
+        if (token != JsonToken.NUMBER && token != JsonToken.STRING) {
+            reader.skipValue();
+            return null;
+        }
+        try {
+            if (type == int.class || type == Integer.class) {
+                return reader.nextInt();
+            }
+            if (type == long.class || type == Long.class) {
+                return reader.nextLong();
+            }
+            if (type == short.class || type == Short.class) {
+                return (short) reader.nextInt();
+            }
+            if (type == byte.class || type == Byte.class) {
+                return (byte) reader.nextInt();
+            }
+            if (type == double.class || type == Double.class) {
+                return reader.nextDouble();
+            }
+            if (type == float.class || type == Float.class) {
+                return (float) reader.nextDouble();
+            }
+        } catch (NumberFormatException e) {
+            //空字符、小数赋值给整数等情况
+            reader.skipValue();
+            return null;
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    /**
+     * 读取枚举
+     *
+     * @param reader 读取器
+     * @param type   枚举类
+     * @return
+     * @throws IOException
+     */
+    protected Object readEnum(JsonReader reader, Class type) throws IOException {
+        String name = null;
+        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+            Object value = readValue(reader);
+            Object object = ((Map) value).get("name");
+            name = object == null ? null : String.valueOf(object);
+        } else {
+            name = reader.nextString();
+        }
+        return name == null ? null : Enum.valueOf(type, name);
+    }
+
+    /**
+     * 读取任意值：对象为Map，数组为List，数字为Long或Double
+     *
+     * @param reader 读取器
+     * @return
+     * @throws IOException
+     */
+    protected Object readValue(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                Map<String, Object> map = new HashMap<>();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    map.put(reader.nextName(), readValue(reader));
+                }
+                reader.endObject();
+                return map;
+            case BEGIN_ARRAY:
+                List<Object> list = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    list.add(readValue(reader));
+                }
+                reader.endArray();
+                return list;
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NUMBER:
+                String number = reader.nextString();
+                if (number.contains(".") || number.contains("e") || number.contains("E")) {
+                    return Double.parseDouble(number);
+                }
+                return Long.parseLong(number);
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                return reader.nextString();
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+package androidx.api;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import okio.Buffer;
+import okio.BufferedSink;
+
+/**
+ * JSON流式写入<br/>
+ * 一次遍历对象图直接写入{@link BufferedSink}，嵌套对象、集合不再生成中间字符串，<br/>
+ * 输出规则与{@link JSON#toJson(Object)}保持一致：空值字段不输出，字符串顶层对象输出为{"text":"..."}。<br/>
+ */
+public class JSONWriter {
+
+    private static JSONWriter instance;
+
+    private JSONWriter() {
+
+    }
+
+    public static JSONWriter acquire() {
+        if (instance == null) {
+            synchronized (JSONWriter.class) {
+                if (instance == null) {
+                    instance = new JSONWriter();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 对象转JSON字符
+     *
+     * @param obj 对象
+     * @return
+     */
+    public String toJson(Object obj) {
+        Buffer buffer = new Buffer();
+        try {
+            write(buffer, obj);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return buffer.readUtf8();
+    }
+
+    /**
+     * 对象写入
+     *
+     * @param sink 写入目标
+     * @param obj  对象
+     * @throws IOException
+     */
+    public void write(BufferedSink sink, Object obj) throws IOException {
+        if (obj == null) {
+            sink.writeUtf8("{}");
+            return;
+        }
+        if (obj instanceof String) {
+            sink.writeUtf8("{\"text\":");
+            writeString(sink, (String) obj);
+            sink.writeByte('}');
+            return;
+        }
+        writeValue(sink, obj);
+    }
+
+    /**
+     * 写入值
+     *
+     * @param sink  写入目标
+     * @param value 值
+     * @throws IOException
+     */
+    public void writeValue(BufferedSink sink, Object value) throws IOException {
+        if (value == null || value == JSONObject.NULL) {
+            sink.writeUtf8("null");
+        } else if (value instanceof CharSequence || value instanceof Character) {
+            writeString(sink, value.toString());
+        } else if (value instanceof Boolean) {
+            sink.writeUtf8((Boolean) value ? "true" : "false");
+        } else if (value instanceof Number) {
+            writeNumber(sink, (Number) value);
+        } else if (value instanceof JSONObject || value instanceof JSONArray) {
+            sink.writeUtf8(value.toString());
+        } else if (value instanceof Collection) {
+            sink.writeByte('[');
+            Iterator<?> iterator = ((Collection<?>) value).iterator();
+            boolean first = true;
+            while (iterator.hasNext()) {
+                if (!first) {
+                    sink.writeByte(',');
+                }
+                writeValue(sink, iterator.next());
+                first = false;
+            }
+            sink.writeByte(']');
+        } else if (value instanceof Map) {
+            sink.writeByte('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                if (!first) {
+                    sink.writeByte(',');
+                }
+                writeString(sink, String.valueOf(entry.getKey()));
+                sink.writeByte(':');
+                writeValue(sink, entry.getValue());
+                first = false;
+            }
+            sink.writeByte('}');
+        } else if (value.getClass().isArray()) {
+            sink.writeByte('[');
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                if (i > 0) {
+                    sink.writeByte(',');
+                }
+                writeValue(sink, Array.get(value, i));
+            }
+            sink.writeByte(']');
+        } else {
+            writeBean(sink, value);
+        }
+    }
+
+    /**
+     * 写入实体
+     *
+     * @param sink 写入目标
+     * @param bean 实体
+     * @throws IOException
+     */
+    protected void writeBean(BufferedSink sink, Object bean) throws IOException {
+        sink.writeByte('{');
+        boolean first = true;
+        for (Field field : ClassBinding.of(bean.getClass()).fields()) {
+            Object fieldValue;
+            try {
+                fieldValue = field.get(bean);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+            if (fieldValue == null) {
+                continue;
+            }
+            if (!first) {
+                sink.writeByte(',');
+            }
+            writeString(sink, field.getName());
+            sink.writeByte(':');
+            writeValue(sink, fieldValue);
+            first = false;
+        }
+        sink.writeByte('}');
+    }
+
+    /**
+     * 写入数字，整数值的小数按整数输出（与org.json一致）
+     *
+     * @param sink   写入目标
+     * @param number 数字
+     * @throws IOException
+     */
+    protected void writeNumber(BufferedSink sink, Number number) throws IOException {
+        if (number instanceof Double || number instanceof Float) {
+            double value = number.doubleValue();
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                sink.writeUtf8("null");
+            } else if (value == (long) value) {
+                sink.writeDecimalLong((long) value);
+            } else {
+                sink.writeUtf8(number.toString());
+            }
+        } else if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            sink.writeDecimalLong(number.longValue());
+        } else {
+            sink.writeUtf8(number.toString());
+        }
+    }
+
+    /**
+     * 写入字符串（转义）
+     *
+     * @param sink  写入目标
+     * @param value 字符串
+     * @throws IOException
+     */
+    protected void writeString(BufferedSink sink, String value) throws IOException {
+        sink.writeByte('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c == '"') {
+                replacement = "\\\"";
+            } else if (c == '\\') {
+                replacement = "\\\\";
+            } else if (c == '\n') {
+                replacement = "\\n";
+            } else if (c == '\r') {
+                replacement = "\\r";
+            } else if (c == '\t') {
+                replacement = "\\t";
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                replacement = String.format("\\u%04x", (int) c);
+            } else {
+                continue;
+            }
+            if (start < i) {
+                sink.writeUtf8(value, start, i);
+            }
+            sink.writeUtf8(replacement);
+            start = i + 1;
+        }
+        if (start < length) {
+            sink.writeUtf8(value, start, length);
+        }
+        sink.writeByte('"');
+    }
+
+}
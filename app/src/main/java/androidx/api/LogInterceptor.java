@@ -21,6 +21,10 @@ import okio.BufferedSource;
 public class LogInterceptor implements Interceptor {
 
     public final String TAG = OkApi.class.getSimpleName();
+    /**
+     * 流式响应的日志内容，不读取响应
+     */
+    private static final String STREAM_BODY = "(stream)";
     private StringBuffer sb;
     private Charset charset;
     private Buffer buffer;
@@ -71,7 +75,7 @@ public class LogInterceptor implements Interceptor {
         String url = httpUrl.toString();
         String method = request.method();
         okhttp3.Response response = chain.proceed(request);
-        if (Configure.Config().isInterceptorCache() || Configure.Config().isDebug()) {
+        if (isLogging()) {
             InterceptorCache logCache = new InterceptorCache();
             sb = getStringBuffer();
             sb.append(ApiLog.NEW_LINE);
@@ -96,11 +100,12 @@ public class LogInterceptor implements Interceptor {
             sb.append(ApiLog.MIDDLE_LINE).append(ApiLog.NEW_LINE);
             sb.append(ApiLog.LEFT_LINE + "code: " + code).append(ApiLog.NEW_LINE);
             logCache.setCode(code);
-            String body = decodeUnicode(getResponseBody(response.body()));
+            //流式响应读取全部内容会阻塞到连接关闭，只记录响应头
+            String body = request.header(Api.STREAM) != null ? STREAM_BODY : decodeUnicode(getResponseBody(response.body()));
             sb.append(ApiLog.LEFT_LINE + "body: " + body).append(ApiLog.NEW_LINE);
             logCache.setBody(body);
             sb.append(ApiLog.BOTTOM_LINE).append(ApiLog.NEW_LINE);
-            if (Configure.Config().isDebug()) {
+            if (isDebug()) {
                 ApiLog.i(TAG, sb.toString());
                 sb.setLength(0);
             }
@@ -115,6 +120,20 @@ public class LogInterceptor implements Interceptor {
         return response;
     }
 
+    /**
+     * @return 是否记录日志（缓存日志或调试模式）
+     */
+    protected boolean isLogging() {
+        return Configure.Config().isInterceptorCache() || isDebug();
+    }
+
+    /**
+     * @return 是否调试模式，打印日志
+     */
+    protected boolean isDebug() {
+        return Configure.Config().isDebug();
+    }
+
     /**
      * 构建新的服务器地址
      *
@@ -4,24 +4,28 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.ContextWrapper;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.text.TextUtils;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.FileNameMap;
 import java.net.URLConnection;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import java.util.TreeMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import okhttp3.CacheControl;
 import okhttp3.Call;
-import okhttp3.Interceptor;
+import okhttp3.Callback;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
-import okhttp3.internal.platform.Platform;
 
 /**
  * 网络请求<br/>
@@ -33,37 +37,40 @@ public final class OkApi implements Api {
     /**
      * Get请求
      */
-    private final int GET = 1;
+    public static final int GET = 1;
     /**
      * Post请求
      */
-    private final int POST = 2;
+    public static final int POST = 2;
     /**
      * Put请求
      */
-    private final int PUT = 3;
+    public static final int PUT = 3;
     /**
      * Delete请求
      */
-    private final int DELETE = 4;
+    public static final int DELETE = 4;
     /**
      * Patch请求
      */
-    private final int PATCH = 5;
+    public static final int PATCH = 5;
     /**
      * 上传文件请求
      */
-    private final int UPLOAD = 6;
+    public static final int UPLOAD = 6;
     /**
      * 请求Handler处理
      */
     private ApiMessenger messenger;
 
-    private List<Call> runningCalls;
+    /**
+     * 运行中的请求
+     */
+    private CallRegistry calls;
     private StringBuffer stringBuffer;
 
     public OkApi() {
-        runningCalls = new ArrayList();
+        calls = new CallRegistry();
         messenger = new ApiMessenger(Looper.getMainLooper());
     }
 
@@ -104,50 +111,151 @@ public final class OkApi implements Api {
 
     @Override
     public void cancel(String tag) {
-        for (Call call : runningCalls) {
-            if (call.request().tag() != null) {
-                String requestTag = (String) call.request().tag();
-                if (requestTag.equals(tag)) {
-                    call.cancel();
-                }
-            }
+        calls.cancel(tag);
+        SingleFlight.acquire().cancel(tag);
+        //主机排队中的请求不会被调度器回调，立即回调失败
+        Configure.Config().hostDispatcher().purge();
+    }
+
+    /**
+     * @return 运行中的请求快照
+     */
+    public List<Call> getRunningCalls() {
+        return calls.calls();
+    }
+
+    /**
+     * @return 运行中的请求
+     */
+    public CallRegistry getCallRegistry() {
+        return calls;
+    }
+
+    /**
+     * 请求加入调度
+     *
+     * @param call     请求
+     * @param params   参数
+     * @param listener 监听
+     */
+    protected void enqueue(Call call, RequestParams params, OnRequestListener listener) {
+        enqueue(call, params, listener, false);
+    }
+
+    /**
+     * 请求加入调度
+     *
+     * @param call     请求
+     * @param params   参数
+     * @param listener 监听
+     * @param bulk     是否大流量传输（上传），非上传请求进行中时上传让出带宽
+     */
+    protected void enqueue(Call call, RequestParams params, OnRequestListener listener, boolean bulk) {
+        calls.add(call);
+        dispatch(call, createCallback(calls, params, listener, bulk), bulk);
+    }
+
+    /**
+     * 请求加入调度，非上传请求按主机并发数排队{@link HostDispatcher}，上传使用上传调度器
+     *
+     * @param call     请求
+     * @param callback 回调
+     * @param bulk     是否大流量传输（上传）
+     */
+    protected void dispatch(Call call, Callback callback, boolean bulk) {
+        Configure configure = Configure.Config();
+        if (bulk) {
+            configure.dispatchInterceptor().enqueued(call);
+            call.enqueue(callback);
+        } else {
+            configure.hostDispatcher().enqueue(call, callback);
+        }
+    }
+
+    /**
+     * 创建请求回调
+     *
+     * @param registry 运行中的请求，为空时不登记
+     * @param params   参数
+     * @param listener 监听
+     * @param bulk     是否大流量传输（上传）
+     * @return
+     */
+    protected OkCallback createCallback(CallRegistry registry, RequestParams params, OnRequestListener listener, boolean bulk) {
+        OkCallback callback = new OkCallback(messenger, registry, listener);
+        callback.delivery(getDelivery(params));
+        if (!bulk) {
+            callback.interactive(Bandwidth.acquire());
+        }
+        if (params != null) {
+            callback.decode(params.decodeType(), params.isDecodeList());
         }
+        return callback;
     }
 
+    /**
+     * 回调投递策略
+     *
+     * @param params 参数
+     * @return
+     */
+    protected Delivery getDelivery(RequestParams params) {
+        if (params != null && params.delivery() != null) {
+            return params.delivery();
+        }
+        return Configure.Config().delivery();
+    }
 
-    public List<Call> getRunningCalls() {
-        return runningCalls;
+    /**
+     * 是否合并相同的进行中请求
+     *
+     * @param params 参数
+     * @return
+     */
+    protected boolean isSingleFlight(RequestParams params) {
+        if (params != null && params.singleFlight() != null) {
+            return params.singleFlight();
+        }
+        return Configure.Config().isSingleFlight();
+    }
+
+    /**
+     * 合并相同的进行中请求，已有请求时只加入监听；<br/>
+     * 合并的请求不登记到{@link CallRegistry}，按标识取消由{@link SingleFlight}计数
+     *
+     * @param request  请求
+     * @param params   参数
+     * @param listener 监听
+     */
+    protected void singleFlight(okhttp3.Request request, RequestParams params, OnRequestListener listener) {
+        SingleFlight singleFlight = SingleFlight.acquire();
+        Class<?> decodeType = params == null ? null : params.decodeType();
+        boolean decodeList = params != null && params.isDecodeList();
+        String key = singleFlight.key(request, decodeType, decodeList);
+        String tag = request.tag() == null ? null : String.valueOf(request.tag());
+        Delivery delivery = getDelivery(params);
+        synchronized (singleFlight) {
+            if (singleFlight.join(key, tag, listener, delivery)) {
+                return;
+            }
+            Call call = getClient().newCall(request);
+            SingleFlight.Flight flight = singleFlight.start(key, call, tag, listener, messenger, delivery);
+            //合并结果在请求线程分发，每个监听再按各自的投递策略回调
+            OkCallback callback = createCallback(null, params, flight, false);
+            callback.delivery(Delivery.direct());
+            dispatch(call, callback, false);
+        }
     }
 
     /**
-     * @return 客户端
+     * @return 客户端，同一配置版本复用同一个客户端
      */
     public OkHttpClient getClient() {
         Configure config = Configure.Config();
         if (config.isSingleton() && config.getHttpClient() != null) {
             return config.getHttpClient();
         }
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
-        builder.protocols(config.protocols());
-        builder.connectTimeout(config.connectTimeout(), TimeUnit.SECONDS);
-        builder.readTimeout(config.readTimeout(), TimeUnit.SECONDS);
-        builder.writeTimeout(config.writeTimeout(), TimeUnit.SECONDS);
-        builder.connectionPool(config.connectionPool());
-        builder.cookieJar(config.cookieJar());
-        builder.dispatcher(config.dispatcher());
-        List<Interceptor> interceptors = config.interceptors();
-        int interceptorSize = interceptors == null ? 0 : interceptors.size();
-        for (int i = 0; i < interceptorSize; i++) {
-            builder.addInterceptor(interceptors.get(i));
-        }
-        builder.retryOnConnectionFailure(config.isRetryOnConnectionFailure());
-        builder.sslSocketFactory(config.socketFactory(), Platform.get().trustManager(config.socketFactory()));
-        builder.hostnameVerifier(config.hostnameVerifier());
-        OkHttpClient client = builder.build();
-        if (config.isSingleton()) {
-            config.setHttpClient(client);
-        }
-        return client;
+        return config.clientRegistry().client();
     }
 
     /**
@@ -193,18 +301,35 @@ public final class OkApi implements Api {
      * @param builder 请求构建者
      */
     protected void addHeaders(RequestParams params, okhttp3.Request.Builder builder) {
-        builder.addHeader("Connection", "close");
-        builder.addHeader("Content-Type", Configure.Config().contentType());
+        builder.header(Header.CONTENT_TYPE, Configure.Config().contentType());
+        builder.header(Header.USER_AGENT, "Android");
         if (params != null && params.header() != null) {
-            String agent = params.header().get(Header.USER_AGENT);
-            builder.addHeader(Header.USER_AGENT, TextUtils.isEmpty(agent) ? "Android" : agent);
             TreeMap<String, String> headerParams = params.header();
             for (String key : headerParams.keySet()) {
-                builder.addHeader(key, headerParams.get(key));
+                String value = headerParams.get(key);
+                if (value != null) {
+                    builder.header(key, value);
+                }
             }
         }
     }
 
+    /**
+     * 添加缓存控制，请求参数未设置时使用全局配置，都为空时按服务器缓存头处理
+     *
+     * @param params  请求参数
+     * @param builder 请求构建者
+     */
+    protected void addCacheControl(RequestParams params, okhttp3.Request.Builder builder) {
+        CacheControl cacheControl = params == null ? null : params.cacheControl();
+        if (cacheControl == null) {
+            cacheControl = Configure.Config().cacheControl();
+        }
+        if (cacheControl != null) {
+            builder.cacheControl(cacheControl);
+        }
+    }
+
     /**
      * 获取标识
      *
@@ -255,7 +380,9 @@ public final class OkApi implements Api {
      * 获取字符缓存
      *
      * @return
+     * @deprecated 多线程创建请求时共享缓存会拼接错乱，路径拼接已改用局部StringBuilder，请自行创建StringBuilder
      */
+    @Deprecated
     public StringBuffer getStringBuffer() {
         if (stringBuffer == null) {
             stringBuffer = new StringBuffer();
@@ -273,7 +400,8 @@ public final class OkApi implements Api {
      * @return
      */
     protected String getParamsUrl(String path, RequestParams params) {
-        StringBuffer buffer = getStringBuffer();
+        //批量请求在请求线程创建下一个请求，不使用共享的字符缓存
+        StringBuilder buffer = new StringBuilder();
         String url = getUrl(path);
         buffer.append(url);
         if (params != null && params.data() != null) {
@@ -290,9 +418,7 @@ public final class OkApi implements Api {
                 buffer.deleteCharAt(buffer.lastIndexOf("&"));
             }
         }
-        String paramsUrl = buffer.toString();
-        buffer.setLength(0);
-        return paramsUrl;
+        return buffer.toString();
     }
 
     /**
@@ -338,6 +464,21 @@ public final class OkApi implements Api {
      * @return
      */
     protected Call createCall(Context context, int method, String path, RequestParams params, RequestBody body) {
+        return createCall(context, method, path, params, body, getClient());
+    }
+
+    /**
+     * 创建请求
+     *
+     * @param context 上下文
+     * @param method  方法
+     * @param path    路径
+     * @param params  参数
+     * @param body    请求体
+     * @param client  客户端
+     * @return
+     */
+    protected Call createCall(Context context, int method, String path, RequestParams params, RequestBody body, OkHttpClient client) {
         okhttp3.Request.Builder builder = new okhttp3.Request.Builder();
         //请求路径
         String url = getUrl(path);
@@ -345,11 +486,14 @@ public final class OkApi implements Api {
         //添加Header
         addHeaders(params, builder);
         //缓存控制
-        builder.cacheControl(Configure.Config().cacheControl());
+        addCacheControl(params, builder);
         //传参数、文件或者混合
         builder.post(body);
         okhttp3.Request request = createRequest(context, method, url, builder, body, params);
-        return getClient().newCall(request);
+        if (body instanceof SinkBody) {
+            ((SinkBody) body).rate(request.url().host(), params == null ? 0 : params.rate());
+        }
+        return client.newCall(request);
     }
 
     /**
@@ -364,8 +508,7 @@ public final class OkApi implements Api {
     protected void multipartBodyRequest(Context context, int method, RequestParams params, String path, OnRequestListener listener) {
         RequestBody body = createMultipartBody(params);
         Call call = createCall(context, method, path, params, body);
-        call.enqueue(new OkCallback(messenger, listener));
-        runningCalls.add(call);
+        enqueue(call, params, listener);
     }
 
     /**
@@ -381,9 +524,8 @@ public final class OkApi implements Api {
     protected void multipartBodyUpload(Context context, int method, RequestParams params, String path,
                                        OnBufferedSinkListener sinkListener, OnRequestListener requestListener) {
         RequestBody body = new SinkBody(createMultipartBody(params), messenger, sinkListener);
-        Call call = createCall(context, method, path, params, body);
-        call.enqueue(new OkCallback(messenger, requestListener));
-        runningCalls.add(call);
+        Call call = createCall(context, method, path, params, body, Bandwidth.acquire().bulkClient(getClient()));
+        enqueue(call, params, requestListener, true);
     }
 
     /**
@@ -396,6 +538,9 @@ public final class OkApi implements Api {
         if (params.binary() != null) {
             return RequestBody.create(mediaType, params.binary());
         }
+        if (params.bean() != null) {
+            return new JSONBody(mediaType, params.bean());
+        }
         String bodyString = params.body();
         String data = params.dataJson();
         String content = TextUtils.isEmpty(bodyString) ? data : bodyString;
@@ -417,8 +562,7 @@ public final class OkApi implements Api {
     protected void binaryBodyRequest(Context context, int method, RequestParams params, String path, OnRequestListener listener) {
         RequestBody body = createBinaryRequestBody(params);
         Call call = createCall(context, method, path, params, body);
-        call.enqueue(new OkCallback(messenger, listener));
-        runningCalls.add(call);
+        enqueue(call, params, listener);
     }
 
     /**
@@ -435,9 +579,8 @@ public final class OkApi implements Api {
                                     OnBufferedSinkListener sinkListener, OnRequestListener requestListener) {
         RequestBody requestBody = createBinaryRequestBody(params);
         SinkBody body = new SinkBody(requestBody, messenger, sinkListener);
-        Call call = createCall(context, method, path, params, body);
-        call.enqueue(new OkCallback(messenger, requestListener));
-        runningCalls.add(call);
+        Call call = createCall(context, method, path, params, body, Bandwidth.acquire().bulkClient(getClient()));
+        enqueue(call, params, requestListener, true);
     }
 
     /**
@@ -449,18 +592,164 @@ public final class OkApi implements Api {
      * @param listener 监听
      */
     protected void getRequest(Context context, RequestParams params, String path, OnRequestListener listener) {
+        okhttp3.Request request = createGetRequest(context, params, path);
+        if (isSingleFlight(params)) {
+            singleFlight(request, params, listener);
+            return;
+        }
+        //请求加入调度
+        Call call = getClient().newCall(request);
+        enqueue(call, params, listener);
+    }
+
+    /**
+     * 创建Get请求
+     *
+     * @param context 上下文
+     * @param params  参数
+     * @param path    路径
+     * @return
+     */
+    protected okhttp3.Request createGetRequest(Context context, RequestParams params, String path) {
         okhttp3.Request.Builder builder = new okhttp3.Request.Builder();
-        builder.addHeader("Connection", "close");
         //添加头文件
         addHeaders(params, builder);
         //缓存控制
-        builder.cacheControl(Configure.Config().cacheControl());
+        addCacheControl(params, builder);
         String url = getParamsUrl(path, params);
-        okhttp3.Request request = createRequest(context, GET, url, builder, null, params);
-        //请求加入调度
-        Call call = getClient().newCall(request);
-        call.enqueue(new OkCallback(messenger, listener));
-        runningCalls.add(call);
+        return createRequest(context, GET, url, builder, null, params);
+    }
+
+    /**
+     * 创建请求，不加入调度
+     *
+     * @param context 上下文
+     * @param method  方法
+     * @param path    路径
+     * @param params  参数
+     * @return
+     */
+    public Call newCall(Context context, int method, String path, RequestParams params) {
+        if (method == GET) {
+            return getClient().newCall(createGetRequest(context, params, path));
+        }
+        String contentType = params.header().get(Header.CONTENT_TYPE);
+        RequestBody body = contentType.equals(Api.FORM_DATA) ? createMultipartBody(params) : createBinaryRequestBody(params);
+        return createCall(context, method, path, params, body);
+    }
+
+    /**
+     * 异步请求，返回结果而不是回调监听；<br/>
+     * 结果在请求线程完成，非2xx以响应码为消息的异常失败，取消结果时取消网络请求，也可通过{@link #cancel(String)}按标识取消
+     *
+     * @param context 上下文
+     * @param method  方法{@link #GET}、{@link #POST}、{@link #PUT}、{@link #DELETE}、{@link #PATCH}
+     * @param path    路径
+     * @param params  参数，流式解析类型见{@link RequestParams#decode(Class)}
+     * @return
+     */
+    public ApiFuture<Response> future(Context context, int method, String path, RequestParams params) {
+        if (params == null) {
+            params = new RequestParams();
+        }
+        Call call = newCall(context, method, path, params);
+        ApiFuture<Response> future = new ApiFuture<>(call);
+        calls.add(call);
+        dispatch(call, new ApiFuture.CallCallback(future, calls, params).interactive(Bandwidth.acquire()), false);
+        return future;
+    }
+
+    /**
+     * 同步请求，在调用线程执行，不经过调度器，用于已在后台线程的任务（例如WorkManager）；<br/>
+     * 与异步请求使用相同的请求头、地址、客户端和拦截器，非2xx同样返回响应，通过{@link Response#code()}判断；<br/>
+     * 整体超时见{@link RequestParams#timeout(long)}，统计见{@link Configure#executeStats()}，可通过{@link #cancel(String)}按标识取消
+     *
+     * @param context 上下文
+     * @param method  方法{@link #GET}、{@link #POST}、{@link #PUT}、{@link #DELETE}、{@link #PATCH}
+     * @param path    路径
+     * @param params  参数，流式解析类型见{@link RequestParams#decode(Class)}
+     * @return 响应，内容已读取
+     * @throws IOException 网络异常、取消，超时为{@link InterruptedIOException}
+     */
+    public Response execute(Context context, int method, String path, RequestParams params) throws IOException {
+        Looper looper = Looper.myLooper();
+        if (looper != null && looper == Looper.getMainLooper()) {
+            throw new IllegalStateException("execute() must not be called on the main thread");
+        }
+        if (params == null) {
+            params = new RequestParams();
+        }
+        final Call call = newCall(context, method, path, params);
+        final AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> timer = null;
+        if (params.timeout() > 0) {
+            //OkHttp没有整体超时，到时取消请求
+            timer = ApiFuture.scheduler().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    timedOut.set(true);
+                    call.cancel();
+                }
+            }, params.timeout(), TimeUnit.MILLISECONDS);
+        }
+        ExecuteStats stats = Configure.Config().executeStats();
+        Bandwidth bandwidth = Bandwidth.acquire();
+        long start = SystemClock.elapsedRealtimeNanos();
+        boolean succeed = false;
+        okhttp3.Response response = null;
+        calls.add(call);
+        bandwidth.beginInteractive();
+        stats.begin();
+        try {
+            response = call.execute();
+            Response result = ApiMessenger.readResponse(call, response, params.decodeType(), params.isDecodeList());
+            //读取内容时取消不会抛出异常
+            if (call.isCanceled()) {
+                throw new IOException("Canceled");
+            }
+            succeed = response.isSuccessful();
+            return result;
+        } catch (IOException e) {
+            if (timedOut.get()) {
+                InterruptedIOException timeout = new InterruptedIOException("timeout: " + params.timeout() + "ms");
+                timeout.initCause(e);
+                throw timeout;
+            }
+            throw e;
+        } finally {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            if (response != null) {
+                response.close();
+            }
+            calls.remove(call);
+            bandwidth.endInteractive();
+            stats.end(SystemClock.elapsedRealtimeNanos() - start, succeed, timedOut.get());
+        }
+    }
+
+    /**
+     * 批量请求
+     *
+     * @param context 上下文
+     * @return
+     */
+    public Batch batch(Context context) {
+        return new Batch(this, context);
+    }
+
+    /**
+     * 流式请求，响应内容按行、NDJSON或SSE事件逐条回调，见{@link ApiStream}
+     *
+     * @param context 上下文
+     * @param method  方法
+     * @param path    路径
+     * @param params  参数
+     * @return
+     */
+    public ApiStream stream(Context context, int method, String path, RequestParams params) {
+        return new ApiStream(this, context, method, path, params);
     }
 
     /**
@@ -510,9 +799,8 @@ public final class OkApi implements Api {
 
     @Override
     public void release() {
-        for (Call call : runningCalls) {
-            call.cancel();
-        }
+        calls.cancelAll();
+        Configure.Config().hostDispatcher().purge();
     }
 
 }
@@ -17,34 +17,135 @@ public class OkCallback implements Callback {
      * 请求Handler
      */
     private ApiMessenger messenger;
+    /**
+     * 运行中的请求
+     */
+    private CallRegistry registry;
     /**
      * 请求监听
      */
     private OnRequestListener onRequestListener;
+    /**
+     * 流式解析类型
+     */
+    private Class<?> decodeType;
+    /**
+     * 流式解析为列表
+     */
+    private boolean decodeList;
+    /**
+     * 接口请求带宽管理，不为空时请求结束后通知
+     */
+    private Bandwidth bandwidth;
+    /**
+     * 回调投递策略，为空时通过请求Handler投递
+     */
+    private Delivery delivery;
 
     public OkCallback(ApiMessenger messenger, OnRequestListener onRequestListener) {
         this.messenger = messenger;
         this.onRequestListener = onRequestListener;
     }
 
+    public OkCallback(ApiMessenger messenger, CallRegistry registry, OnRequestListener onRequestListener) {
+        this(messenger, onRequestListener);
+        this.registry = registry;
+    }
+
+    /**
+     * 设置流式解析
+     *
+     * @param decodeType 解析类型，为空不解析
+     * @param decodeList 是否解析为列表
+     * @return
+     */
+    public OkCallback decode(Class<?> decodeType, boolean decodeList) {
+        this.decodeType = decodeType;
+        this.decodeList = decodeList;
+        return this;
+    }
+
+    /**
+     * 设置回调投递策略
+     *
+     * @param delivery 投递策略
+     * @return
+     */
+    public OkCallback delivery(Delivery delivery) {
+        this.delivery = delivery;
+        return this;
+    }
+
+    /**
+     * 标记为接口请求，进行中时大流量传输让出带宽
+     *
+     * @param bandwidth 带宽管理
+     * @return
+     */
+    public OkCallback interactive(Bandwidth bandwidth) {
+        this.bandwidth = bandwidth;
+        bandwidth.beginInteractive();
+        return this;
+    }
+
+    /**
+     * 接口请求结束
+     */
+    private void endInteractive() {
+        if (bandwidth != null) {
+            bandwidth.endInteractive();
+            bandwidth = null;
+        }
+    }
+
+    /**
+     * 在请求线程读取响应后投递，设置解析类型时直接从响应流解析
+     *
+     * @param call     请求
+     * @param response 响应
+     */
+    private void deliver(Call call, okhttp3.Response response) {
+        androidx.api.Response result;
+        try {
+            result = ApiMessenger.readResponse(call, response, decodeType, decodeList);
+        } catch (Exception e) {
+            //读取或解析失败，按请求失败回调
+            messenger.send(ApiMessenger.FAILED, call, null, e, onRequestListener, delivery);
+            return;
+        }
+        if (response.isSuccessful()) {
+            messenger.sendResponse(ApiMessenger.SUCCEED, call, result, null, onRequestListener, delivery);
+        } else {
+            messenger.sendResponse(ApiMessenger.FAILED, call, result, new Exception(String.valueOf(response.code())), onRequestListener, delivery);
+        }
+    }
+
     @Override
     public void onFailure(Call call, IOException e) {
+        endInteractive();
+        if (registry != null) {
+            registry.remove(call);
+        }
         if (onRequestListener != null) {
-            messenger.send(ApiMessenger.FAILED, call, null, e, onRequestListener);
+            messenger.send(ApiMessenger.FAILED, call, null, e, onRequestListener, delivery);
         }
         call.cancel();
     }
 
     @Override
     public void onResponse(Call call, okhttp3.Response response) {
-        if (onRequestListener != null) {
-            if (response.isSuccessful()) {
-                messenger.send(ApiMessenger.SUCCEED, call, response, null, onRequestListener);
-            } else {
-                messenger.send(ApiMessenger.FAILED, call, response, new Exception(String.valueOf(response.code())), onRequestListener);
+        try {
+            if (registry != null) {
+                registry.remove(call);
             }
+            if (onRequestListener != null) {
+                deliver(call, response);
+            }
+            call.cancel();
+            response.close();
+        } finally {
+            //响应内容读取完成后才结束，读取期间上传仍让出带宽
+            endInteractive();
         }
-        call.cancel();
-        response.close();
     }
 }
@@ -0,0 +1,26 @@
+package androidx.api;
+
+import java.util.List;
+
+/**
+ * 批量请求监听，在主线程回调
+ */
+public interface OnBatchListener {
+
+    /**
+     * 单个请求完成，只在{@link Batch#stream(boolean)}开启时回调；<br/>
+     * 同一次主线程投递中可能连续回调多个请求
+     *
+     * @param result 请求结果
+     */
+    void onBatchItem(Batch.Result result);
+
+    /**
+     * 批量请求完成
+     *
+     * @param results 按添加顺序的结果，快速失败时未执行的请求为空
+     * @param failure 快速失败时第一个失败的结果，否则为空
+     */
+    void onBatchCompleted(List<Batch.Result> results, Batch.Result failure);
+
+}
@@ -0,0 +1,31 @@
+package androidx.api;
+
+/**
+ * 流式响应监听，按{@link ApiStream#delivery(Delivery)}投递，同一个流的回调依次进行不并发
+ */
+public interface OnStreamListener {
+
+    /**
+     * 收到响应头，开始读取记录
+     *
+     * @param request  请求包
+     * @param response 响应数据，不含响应内容
+     */
+    void onStreamOpen(Request request, Response response);
+
+    /**
+     * 收到一条记录，回调返回前读取线程最多再缓冲{@link ApiStream#capacity(int)}条记录
+     *
+     * @param record 记录
+     */
+    void onStreamRecord(ApiStream.Record record);
+
+    /**
+     * 流结束，所有记录回调完成后回调一次
+     *
+     * @param request   请求包
+     * @param exception 异常，正常结束时为空，非2xx时为响应码，取消时为取消异常
+     */
+    void onStreamClosed(Request request, Exception exception);
+
+}
@@ -0,0 +1,181 @@
+package androidx.api;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 进度分发<br/>
+ * 写入线程只记录最新进度，按时间间隔或百分比步长合并后投递到Handler线程，<br/>
+ * 同一时间最多一个待投递任务，投递时读取最新值；完成值（进度等于总大小）和{@link #flush()}始终投递。<br/>
+ * 投递复用同一个Runnable，不创建Message数据和Bundle。
+ */
+public class ProgressDispatcher implements Runnable {
+
+    /**
+     * 默认投递间隔 - 单位毫秒
+     */
+    public static final long DEFAULT_INTERVAL = 100;
+
+    /**
+     * 进度回调，在Handler线程执行
+     */
+    public interface Callback {
+
+        /**
+         * 进度
+         *
+         * @param total    总大小
+         * @param progress 当前进度
+         */
+        void onProgress(long total, long progress);
+
+    }
+
+    /**
+     * 投递线程
+     */
+    private final Handler handler;
+    /**
+     * 回调
+     */
+    private final Callback callback;
+    /**
+     * 投递间隔 - 单位毫秒，小于等于0不按时间合并
+     */
+    private final long interval;
+    /**
+     * 百分比步长（0-100），小于等于0不按百分比合并
+     */
+    private final float step;
+    /**
+     * 最新总大小
+     */
+    private volatile long total;
+    /**
+     * 最新进度
+     */
+    private volatile long progress;
+    /**
+     * 上次投递时间
+     */
+    private volatile long lastTime;
+    /**
+     * 上次投递进度
+     */
+    private volatile long lastProgress;
+    /**
+     * 已回调总大小（Handler线程）
+     */
+    private long deliveredTotal = -1;
+    /**
+     * 已回调进度（Handler线程）
+     */
+    private long deliveredProgress = -1;
+    /**
+     * 是否有待投递任务
+     */
+    private final AtomicBoolean pending = new AtomicBoolean();
+    /**
+     * 是否已取消
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * 构造函数
+     *
+     * @param handler  投递线程
+     * @param interval 投递间隔 - 单位毫秒
+     * @param step     百分比步长（0-100）
+     * @param callback 回调
+     */
+    public ProgressDispatcher(Handler handler, long interval, float step, Callback callback) {
+        this.handler = handler;
+        this.interval = interval;
+        this.step = step;
+        this.callback = callback;
+    }
+
+    /**
+     * 更新进度，可在任意线程调用
+     *
+     * @param total    总大小
+     * @param progress 当前进度
+     */
+    public void update(long total, long progress) {
+        this.total = total;
+        this.progress = progress;
+        boolean finished = total > 0 && progress >= total;
+        long now = SystemClock.uptimeMillis();
+        if (!finished && !isDue(now, total, progress)) {
+            return;
+        }
+        lastTime = now;
+        lastProgress = progress;
+        post();
+    }
+
+    /**
+     * 是否到达投递条件
+     *
+     * @param now      当前时间
+     * @param total    总大小
+     * @param progress 当前进度
+     * @return
+     */
+    protected boolean isDue(long now, long total, long progress) {
+        if (interval <= 0 && step <= 0) {
+            return true;
+        }
+        if (interval > 0 && now - lastTime >= interval) {
+            return true;
+        }
+        return step > 0 && total > 0 && (progress - lastProgress) * 100F / total >= step;
+    }
+
+    /**
+     * 立即投递最新进度（暂停、完成、失败前调用）
+     */
+    public void flush() {
+        post();
+    }
+
+    /**
+     * 取消，之后不再回调
+     */
+    public void cancel() {
+        cancelled = true;
+        if (handler != null) {
+            handler.removeCallbacks(this);
+        }
+    }
+
+    /**
+     * 投递
+     */
+    private void post() {
+        if (cancelled || handler == null) {
+            return;
+        }
+        if (pending.compareAndSet(false, true)) {
+            handler.post(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        pending.set(false);
+        long total = this.total;
+        long progress = this.progress;
+        if (cancelled || (total == deliveredTotal && progress == deliveredProgress)) {
+            return;
+        }
+        deliveredTotal = total;
+        deliveredProgress = progress;
+        if (callback != null) {
+            callback.onProgress(total, progress);
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package androidx.api;
+
+import android.os.SystemClock;
+
+import java.io.InterruptedIOException;
+
+/**
+ * 令牌桶限速<br/>
+ * 按速率生成令牌（字节），桶容量为突发量；单次获取可以超过当前令牌数，<br/>
+ * 不足部分记为欠账，调用线程按欠账等待，后续获取者排在欠账之后，多个线程共享一个限速器时按总速率限速。
+ */
+public class RateLimiter {
+
+    /**
+     * 速率 - 字节/秒，小于等于0不限速
+     */
+    private long rate;
+    /**
+     * 突发量 - 字节
+     */
+    private long burst;
+    /**
+     * 当前令牌数，可为负数（欠账）
+     */
+    private double tokens;
+    /**
+     * 上次补充时间 - 纳秒
+     */
+    private long lastTime;
+
+    /**
+     * 构造函数，突发量为一秒的速率
+     *
+     * @param rate 速率 - 字节/秒，小于等于0不限速
+     */
+    public RateLimiter(long rate) {
+        this(rate, rate);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param rate  速率 - 字节/秒，小于等于0不限速
+     * @param burst 突发量 - 字节
+     */
+    public RateLimiter(long rate, long burst) {
+        this.rate = rate;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastTime = nanoTime();
+    }
+
+    /**
+     * @return 当前时间 - 纳秒
+     */
+    protected long nanoTime() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * @return 速率 - 字节/秒
+     */
+    public synchronized long rate() {
+        return rate;
+    }
+
+    /**
+     * 设置速率，突发量不小于一秒的速率
+     *
+     * @param rate 速率 - 字节/秒，小于等于0不限速
+     * @return
+     */
+    public synchronized RateLimiter rate(long rate) {
+        refill(nanoTime());
+        this.rate = rate;
+        this.burst = Math.max(burst, rate);
+        return this;
+    }
+
+    /**
+     * @return 是否限速
+     */
+    public synchronized boolean isLimited() {
+        return rate > 0;
+    }
+
+    /**
+     * 补充令牌
+     *
+     * @param now 当前时间 - 纳秒
+     */
+    private void refill(long now) {
+        if (rate > 0) {
+            tokens = Math.min(burst, tokens + (now - lastTime) * rate / 1e9);
+        } else {
+            tokens = burst;
+        }
+        lastTime = now;
+    }
+
+    /**
+     * 预留字节数
+     *
+     * @param bytes 字节数
+     * @return 需要等待的时间 - 纳秒
+     */
+    protected synchronized long reserve(long bytes) {
+        if (rate <= 0) {
+            return 0;
+        }
+        refill(nanoTime());
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : (long) (-tokens * 1e9 / rate);
+    }
+
+    /**
+     * 获取字节数，令牌不足时阻塞等待
+     *
+     * @param bytes 字节数
+     * @throws InterruptedIOException 等待时线程被中断（请求取消）
+     */
+    public void acquire(long bytes) throws InterruptedIOException {
+        long wait = reserve(bytes);
+        if (wait <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Rate limiter interrupted");
+        }
+    }
+
+}
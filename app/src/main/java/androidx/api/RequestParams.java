@@ -9,6 +9,9 @@ import java.io.File;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
 
 /**
  * Api请求参数
@@ -39,6 +42,38 @@ public class RequestParams {
      * 二进制数据
      */
     private byte[] binary;
+    /**
+     * 实体数据
+     */
+    private Object bean;
+    /**
+     * 流式解析类型
+     */
+    private Class<?> decodeType;
+    /**
+     * 流式解析为列表
+     */
+    private boolean decodeList;
+    /**
+     * 上传限速 - 字节/秒
+     */
+    private long rate;
+    /**
+     * 缓存控制，为空时使用{@link Configure#cacheControl()}
+     */
+    private CacheControl cacheControl;
+    /**
+     * 是否合并相同的进行中请求，为空时使用{@link Configure#isSingleFlight()}
+     */
+    private Boolean singleFlight;
+    /**
+     * 回调投递策略
+     */
+    private Delivery delivery;
+    /**
+     * 同步请求超时 - 单位毫秒
+     */
+    private long timeout;
 
     public RequestParams() {
 
@@ -223,6 +258,24 @@ public class RequestParams {
         this.binary = binary;
     }
 
+    /**
+     * 实体数据，请求时直接序列化为JSON写入请求体
+     *
+     * @param bean 实体
+     */
+    public void bean(Object bean) {
+        this.bean = bean;
+    }
+
+    /**
+     * 获取实体数据
+     *
+     * @return
+     */
+    public Object bean() {
+        return bean;
+    }
+
     /**
      * 返回字符串的Body实例
      *
@@ -259,6 +312,147 @@ public class RequestParams {
         return tag;
     }
 
+    /**
+     * 响应流式解析为对象，在请求线程直接从响应流解析，不生成body字符串，<br/>
+     * 成功后通过{@link Response#toObject(Class)}获取
+     *
+     * @param type 对象类
+     */
+    public void decode(Class<?> type) {
+        this.decodeType = type;
+        this.decodeList = false;
+    }
+
+    /**
+     * 响应流式解析为列表，成功后通过{@link Response#toList(Class)}获取
+     *
+     * @param type 列表对象类
+     */
+    public void decodeList(Class<?> type) {
+        this.decodeType = type;
+        this.decodeList = true;
+    }
+
+    /**
+     * @return 流式解析类型
+     */
+    public Class<?> decodeType() {
+        return decodeType;
+    }
+
+    /**
+     * @return 是否流式解析为列表
+     */
+    public boolean isDecodeList() {
+        return decodeList;
+    }
+
+    /**
+     * 单个请求缓存控制，例如CacheControl.FORCE_CACHE、CacheControl.FORCE_NETWORK
+     *
+     * @param cacheControl 缓存控制
+     */
+    public void cacheControl(CacheControl cacheControl) {
+        this.cacheControl = cacheControl;
+    }
+
+    /**
+     * @return 单个请求缓存控制
+     */
+    public CacheControl cacheControl() {
+        return cacheControl;
+    }
+
+    /**
+     * 允许使用过期时间不超过指定秒数的缓存
+     *
+     * @param seconds 秒
+     */
+    public void maxStale(int seconds) {
+        cacheControl = new CacheControl.Builder().maxStale(seconds, TimeUnit.SECONDS).build();
+    }
+
+    /**
+     * 只使用缓存，没有缓存时返回504
+     */
+    public void onlyIfCached() {
+        cacheControl = new CacheControl.Builder().onlyIfCached().maxStale(Integer.MAX_VALUE, TimeUnit.SECONDS).build();
+    }
+
+    /**
+     * 过期可用：缓存过期不超过指定秒数时先返回缓存，后台请求网络刷新缓存
+     *
+     * @param seconds 秒
+     */
+    public void staleWhileRevalidate(int seconds) {
+        addHeader(Api.STALE_WHILE_REVALIDATE, String.valueOf(seconds));
+    }
+
+    /**
+     * 是否合并相同的进行中GET请求（方法+地址+指定请求头相同）
+     *
+     * @param singleFlight 是否合并
+     */
+    public void singleFlight(boolean singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    /**
+     * @return 是否合并相同的进行中请求，未设置时为空
+     */
+    public Boolean singleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * 回调投递策略，例如后台同步、数据库写入的请求投递到线程池，不经过主线程
+     *
+     * @param delivery 投递策略
+     */
+    public void delivery(Delivery delivery) {
+        this.delivery = delivery;
+    }
+
+    /**
+     * @return 回调投递策略，未设置时为空，使用{@link Configure#delivery()}
+     */
+    public Delivery delivery() {
+        return delivery;
+    }
+
+    /**
+     * 同步请求整体超时（连接、发送、等待响应、读取内容），超时取消请求，
+     * {@link OkApi#execute(android.content.Context, int, String, RequestParams)}抛出{@link java.io.InterruptedIOException}
+     *
+     * @param timeout 超时 - 单位毫秒，小于等于0时只受{@link Configure}连接、读取、写入超时限制
+     */
+    public void timeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return 同步请求超时 - 单位毫秒
+     */
+    public long timeout() {
+        return timeout;
+    }
+
+    /**
+     * 上传限速，同时受{@link Bandwidth}全局和主机限速
+     *
+     * @param rate 速率 - 字节/秒，小于等于0不限速
+     */
+    public void rate(long rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * @return 上传限速 - 字节/秒
+     */
+    public long rate() {
+        return rate;
+    }
+
     /**
      * 所有数据转JSON
      *
@@ -331,6 +525,14 @@ public class RequestParams {
         tag = null;
         body = null;
         binary = null;
+        bean = null;
+        decodeType = null;
+        decodeList = false;
+        rate = 0;
+        cacheControl = null;
+        singleFlight = null;
+        delivery = null;
+        timeout = 0;
     }
 
 }
@@ -61,6 +61,10 @@ public class Response {
     private JSON json;
     private JSONArray jsonArray;
     private JSONObject jsonObject;
+    /**
+     * 流式解析结果
+     */
+    private Object object;
 
     public Response() {
 
@@ -136,6 +140,9 @@ public class Response {
      * @return
      */
     public <T> T toObject(Class<T> target) {
+        if (object != null && target.isInstance(object)) {
+            return (T) object;
+        }
         if (isJsonBody()) {
             return json().toObject(body(), target);
         } else {
@@ -152,6 +159,9 @@ public class Response {
      * @return
      */
     public <T, C extends List> C toList(Class<T> target) {
+        if (object instanceof List) {
+            return (C) object;
+        }
         if (isJsonArray(body())) {
             return json().toList(body(), target);
         } else {
@@ -177,6 +187,17 @@ public class Response {
         return null;
     }
 
+    /**
+     * @return 流式解析结果，见{@link RequestParams#decode(Class)}
+     */
+    public Object object() {
+        return object;
+    }
+
+    public void object(Object object) {
+        this.object = object;
+    }
+
     public String message() {
         return message;
     }
@@ -304,6 +325,7 @@ public class Response {
         jsonObject = null;
         jsonArray = null;
         json = null;
+        object = null;
     }
 
 }
@@ -2,10 +2,46 @@ package androidx.api;
 
 
 /**
- * 响应参数
+ * 响应参数<br/>
+ * 每次投递通过{@link #obtain()}从回收池获取独立的实例，回调完成后{@link #recycle()}放回，并发完成的请求互不覆盖；<br/>
+ * 只复用投递信封，回调给监听的{@link Request}和{@link Response}每次新建，回调之后仍可继续持有。
  */
 public class ResponseBody {
 
+    /**
+     * 回收池最大个数
+     */
+    public static final int MAX_POOL_SIZE = 32;
+    /**
+     * 回收池锁
+     */
+    private static final Object POOL_LOCK = new Object();
+    /**
+     * 回收池（链表）
+     */
+    private static ResponseBody pool;
+    /**
+     * 回收池个数
+     */
+    private static int poolSize;
+
+    /**
+     * 回收池下一个
+     */
+    private ResponseBody next;
+    /**
+     * 是否正在使用（已获取、未回收）
+     */
+    private boolean inUse;
+    /**
+     * 上传总大小
+     */
+    private long contentLength;
+    /**
+     * 上传进度
+     */
+    private long progress;
+
     /**
      * 请求参数
      */
@@ -107,6 +143,89 @@ public class ResponseBody {
         this.onBufferedSinkListener = onBufferedSinkListener;
     }
 
+    /**
+     * 从回收池获取，回收池为空时创建
+     *
+     * @return 携带新建请求包和响应的实例
+     */
+    public static ResponseBody obtain() {
+        ResponseBody body = null;
+        synchronized (POOL_LOCK) {
+            if (pool != null) {
+                body = pool;
+                pool = body.next;
+                body.next = null;
+                poolSize--;
+            }
+        }
+        if (body == null) {
+            body = new ResponseBody();
+        }
+        body.inUse = true;
+        body.request = new Request();
+        body.response = new Response();
+        return body;
+    }
+
+    /**
+     * @return 回收池个数
+     */
+    public static int poolSize() {
+        synchronized (POOL_LOCK) {
+            return poolSize;
+        }
+    }
+
+    /**
+     * 回收，回调完成后调用，之后不能再使用该实例；<br/>
+     * 只清空引用，不取消请求，也不清空已回调的请求包和响应，重复回收或非{@link #obtain()}获取的实例不处理
+     */
+    public void recycle() {
+        if (!inUse) {
+            return;
+        }
+        inUse = false;
+        request = null;
+        response = null;
+        exception = null;
+        onRequestListener = null;
+        onBufferedSinkListener = null;
+        contentLength = 0;
+        progress = 0;
+        synchronized (POOL_LOCK) {
+            if (poolSize < MAX_POOL_SIZE) {
+                next = pool;
+                pool = this;
+                poolSize++;
+            }
+        }
+    }
+
+    /**
+     * @return 上传总大小
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return 上传进度
+     */
+    public long getProgress() {
+        return progress;
+    }
+
+    /**
+     * 设置上传进度
+     *
+     * @param contentLength 总大小
+     * @param progress      进度
+     */
+    public void setProgress(long contentLength, long progress) {
+        this.contentLength = contentLength;
+        this.progress = progress;
+    }
+
     /**
      * 资源释放
      */
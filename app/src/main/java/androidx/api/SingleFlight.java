@@ -0,0 +1,289 @@
+package androidx.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Call;
+
+/**
+ * 请求合并（single-flight）<br/>
+ * 方法+地址+指定请求头+流式解析类型相同、且仍在进行中的GET请求只发送一次，后加入的请求挂到已有请求上，<br/>
+ * 响应在请求线程按加入顺序分发，每个监听按各自的投递策略（{@link Delivery}）回调，所有监听收到同一个{@link Response}；<br/>
+ * 取消按标识计数：只取消该标识加入的监听（回调失败），没有其他标识时才取消网络请求。
+ */
+public class SingleFlight {
+
+    public final static String TAG = SingleFlight.class.getSimpleName();
+
+    private static SingleFlight instance;
+    /**
+     * 合并键 - 进行中的请求
+     */
+    private final Map<String, Flight> flights = new HashMap<>();
+    /**
+     * 参与合并键的请求头
+     */
+    private List<String> headers = Arrays.asList(Api.DOMAIN, Header.AUTHORIZATION, "Accept", "Accept-Language");
+
+    private SingleFlight() {
+
+    }
+
+    public static SingleFlight acquire() {
+        if (instance == null) {
+            synchronized (SingleFlight.class) {
+                if (instance == null) {
+                    instance = new SingleFlight();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 设置参与合并键的请求头，请求头不同的请求不合并
+     *
+     * @param headers 请求头名称
+     * @return
+     */
+    public synchronized SingleFlight headers(String... headers) {
+        this.headers = Arrays.asList(headers);
+        return this;
+    }
+
+    /**
+     * 合并键
+     *
+     * @param request    请求
+     * @param decodeType 流式解析类型
+     * @param decodeList 是否流式解析为列表
+     * @return
+     */
+    public synchronized String key(okhttp3.Request request, Class<?> decodeType, boolean decodeList) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(request.method()).append(' ').append(request.url());
+        for (String name : headers) {
+            String value = request.header(name);
+            if (value != null) {
+                builder.append('\n').append(name).append(": ").append(value);
+            }
+        }
+        if (decodeType != null) {
+            builder.append('\n').append(decodeList ? "list:" : "object:").append(decodeType.getName());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 加入进行中的请求
+     *
+     * @param key      合并键
+     * @param tag      标识
+     * @param listener 监听
+     * @param delivery 该监听的回调投递策略
+     * @return 是否已加入，没有进行中的请求时返回false
+     */
+    public synchronized boolean join(String key, String tag, OnRequestListener listener, Delivery delivery) {
+        Flight flight = flights.get(key);
+        if (flight == null) {
+            return false;
+        }
+        flight.participants.add(new Participant(tag, listener, delivery));
+        ApiLog.i(TAG, "join: " + key + " , size: " + flight.participants.size());
+        return true;
+    }
+
+    /**
+     * 开始新的请求
+     *
+     * @param key       合并键
+     * @param call      请求
+     * @param tag       标识
+     * @param listener  监听
+     * @param messenger 部分取消时回调失败
+     * @param delivery  该监听的回调投递策略，加入的监听使用各自的投递策略
+     * @return 合并监听，作为请求回调的监听，需要在请求线程直接回调（{@link Delivery#direct()}）
+     */
+    public synchronized Flight start(String key, Call call, String tag, OnRequestListener listener, ApiMessenger messenger, Delivery delivery) {
+        Flight flight = new Flight(key, call, messenger);
+        flight.participants.add(new Participant(tag, listener, delivery));
+        flights.put(key, flight);
+        return flight;
+    }
+
+    /**
+     * 取消标识加入的请求，请求没有其他标识时取消网络请求
+     *
+     * @param tag 标识
+     */
+    public void cancel(String tag) {
+        List<Flight> cancelled = new ArrayList<>();
+        List<Flight> partial = new ArrayList<>();
+        List<Participant> removed = new ArrayList<>();
+        synchronized (this) {
+            for (Flight flight : flights.values()) {
+                boolean others = false;
+                for (Participant participant : flight.participants) {
+                    if (!equals(tag, participant.tag)) {
+                        others = true;
+                        break;
+                    }
+                }
+                if (!others) {
+                    //全部属于该标识，取消网络请求，由请求失败回调所有监听，新的相同请求不再加入
+                    cancelled.add(flight);
+                    continue;
+                }
+                Iterator<Participant> iterator = flight.participants.iterator();
+                while (iterator.hasNext()) {
+                    Participant participant = iterator.next();
+                    if (equals(tag, participant.tag)) {
+                        iterator.remove();
+                        partial.add(flight);
+                        removed.add(participant);
+                    }
+                }
+            }
+            for (Flight flight : cancelled) {
+                flights.remove(flight.key);
+            }
+        }
+        for (Flight flight : cancelled) {
+            flight.call.cancel();
+        }
+        for (int i = 0; i < removed.size(); i++) {
+            Participant participant = removed.get(i);
+            Flight flight = partial.get(i);
+            if (participant.listener != null && flight.messenger != null) {
+                flight.messenger.send(ApiMessenger.FAILED, flight.call, null, new IOException("Canceled"), participant.listener, participant.delivery);
+            }
+        }
+    }
+
+    /**
+     * 取消所有请求
+     */
+    public void cancelAll() {
+        List<Call> cancelled = new ArrayList<>();
+        synchronized (this) {
+            for (Flight flight : flights.values()) {
+                cancelled.add(flight.call);
+            }
+        }
+        for (Call call : cancelled) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * @return 进行中的合并请求数
+     */
+    public synchronized int size() {
+        return flights.size();
+    }
+
+    /**
+     * 结束请求，之后相同的请求重新发送
+     *
+     * @param flight 请求
+     * @return 结束时的监听
+     */
+    private synchronized List<Participant> finish(Flight flight) {
+        if (flights.get(flight.key) == flight) {
+            flights.remove(flight.key);
+        }
+        List<Participant> participants = new ArrayList<>(flight.participants);
+        flight.participants.clear();
+        return participants;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * 合并的请求，在请求线程把结果分发到每个监听的投递策略
+     */
+    public class Flight implements OnRequestListener {
+
+        private final String key;
+        private final Call call;
+        private final ApiMessenger messenger;
+        private final List<Participant> participants = new ArrayList<>();
+
+        Flight(String key, Call call, ApiMessenger messenger) {
+            this.key = key;
+            this.call = call;
+            this.messenger = messenger;
+        }
+
+        public Call call() {
+            return call;
+        }
+
+        @Override
+        public void onRequestSucceed(final Request request, final Response response) {
+            for (final Participant participant : finish(this)) {
+                if (participant.listener != null) {
+                    participant.deliver(new Runnable() {
+                        @Override
+                        public void run() {
+                            participant.listener.onRequestSucceed(request, response);
+                        }
+                    });
+                }
+            }
+        }
+
+        @Override
+        public void onRequestFailed(final Request request, final Exception exception) {
+            for (final Participant participant : finish(this)) {
+                if (participant.listener != null) {
+                    participant.deliver(new Runnable() {
+                        @Override
+                        public void run() {
+                            participant.listener.onRequestFailed(request, exception);
+                        }
+                    });
+                }
+            }
+        }
+
+    }
+
+    /**
+     * 加入请求的标识、监听和投递策略
+     */
+    private static class Participant {
+
+        final String tag;
+        final OnRequestListener listener;
+        final Delivery delivery;
+
+        Participant(String tag, OnRequestListener listener, Delivery delivery) {
+            this.tag = tag;
+            this.listener = listener;
+            this.delivery = delivery;
+        }
+
+        /**
+         * 按该监听的投递策略回调，未设置时在当前线程回调
+         *
+         * @param runnable 回调
+         */
+        void deliver(Runnable runnable) {
+            if (delivery == null) {
+                runnable.run();
+            } else {
+                delivery.execute(runnable);
+            }
+        }
+
+    }
+
+}
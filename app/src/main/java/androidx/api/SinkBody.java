@@ -17,7 +17,7 @@ public class SinkBody extends RequestBody {
     /**
      * 进度
      */
-    private int bytes;
+    private long bytes;
     /**
      * 上传内容
      */
@@ -30,6 +30,18 @@ public class SinkBody extends RequestBody {
      * 上传监听
      */
     private OnBufferedSinkListener onBufferedSinkListener;
+    /**
+     * 进度分发
+     */
+    private ProgressDispatcher progressDispatcher;
+    /**
+     * 上传主机，用于主机限速
+     */
+    private String host;
+    /**
+     * 单个上传限速，为空不限速
+     */
+    private RateLimiter rateLimiter;
 
     /**
      * 构造函数
@@ -42,6 +54,32 @@ public class SinkBody extends RequestBody {
         this.body = body;
         this.messenger = messenger;
         this.onBufferedSinkListener = onBufferedSinkListener;
+        if (messenger != null) {
+            Configure configure = Configure.Config();
+            long interval = configure == null ? ProgressDispatcher.DEFAULT_INTERVAL : configure.progressInterval();
+            float step = configure == null ? 0 : configure.progressStep();
+            progressDispatcher = new ProgressDispatcher(messenger, interval, step, new ProgressDispatcher.Callback() {
+                @Override
+                public void onProgress(long total, long progress) {
+                    if (SinkBody.this.onBufferedSinkListener != null) {
+                        SinkBody.this.onBufferedSinkListener.onBufferedSinkWrite(total, progress);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 设置限速，写入时按{@link Bandwidth}全局、主机和单个上传限速
+     *
+     * @param host 主机
+     * @param rate 单个上传速率 - 字节/秒，小于等于0只受全局和主机限速
+     * @return
+     */
+    public SinkBody rate(String host, long rate) {
+        this.host = host;
+        this.rateLimiter = rate > 0 ? new RateLimiter(rate) : null;
+        return this;
     }
 
     @Override
@@ -56,12 +94,16 @@ public class SinkBody extends RequestBody {
 
     @Override
     public void writeTo(BufferedSink sink) throws IOException {
+        final long contentLength = contentLength();
+        //重试时重新计算进度
+        bytes = 0;
         ForwardingSink forwardingSink = new ForwardingSink(sink) {
             @Override
             public void write(Buffer source, long byteCount) throws IOException {
+                Bandwidth.acquire().throttle(host, rateLimiter, byteCount);
                 bytes += byteCount;
-                if (messenger != null) {
-                    messenger.send(ApiMessenger.PROGRESS, contentLength(), bytes, onBufferedSinkListener);
+                if (progressDispatcher != null) {
+                    progressDispatcher.update(contentLength, bytes);
                 }
                 super.write(source, byteCount);
             }
@@ -69,6 +111,9 @@ public class SinkBody extends RequestBody {
         BufferedSink bufferedSink = Okio.buffer(forwardingSink);
         body.writeTo(bufferedSink);
         bufferedSink.flush();
+        if (progressDispatcher != null) {
+            progressDispatcher.flush();
+        }
     }
 
 }
\ No newline at end of file
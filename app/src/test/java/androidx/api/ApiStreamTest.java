@@ -0,0 +1,134 @@
+package androidx.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import okhttp3.OkHttpClient;
+import okio.BufferedSource;
+
+import static org.junit.Assert.*;
+
+/**
+ * 流式响应经过日志拦截器测试<br/>
+ * 开启日志时，流式请求的记录在连接关闭之前就能读取，普通请求的日志会读取整个响应。
+ */
+public class ApiStreamTest {
+
+    /**
+     * 开启日志的拦截器，不打印到Logcat
+     */
+    private static class LoggingInterceptor extends LogInterceptor {
+
+        @Override
+        protected boolean isLogging() {
+            return true;
+        }
+
+        @Override
+        protected boolean isDebug() {
+            return false;
+        }
+
+    }
+
+    /**
+     * 发送第一行后保持连接，直到释放
+     */
+    private static class StreamHandler implements HttpHandler {
+
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile String streamHeader;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            streamHeader = exchange.getRequestHeaders().getFirst(Api.STREAM);
+            exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write("{\"index\":1}\n".getBytes(Charset.forName("UTF-8")));
+            out.flush();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.write("{\"index\":2}\n".getBytes(Charset.forName("UTF-8")));
+            exchange.close();
+        }
+
+    }
+
+    /**
+     * 读取第一行
+     *
+     * @param client  客户端
+     * @param request 请求
+     * @return
+     */
+    private Callable<String> firstLine(final OkHttpClient client, final okhttp3.Request request) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                okhttp3.Response response = client.newCall(request).execute();
+                BufferedSource source = response.body().source();
+                String line = source.readUtf8LineStrict();
+                response.close();
+                return line;
+            }
+        };
+    }
+
+    @Test
+    public void logging_streamRecordsArriveWhileOpen() throws Exception {
+        StreamHandler handler = new StreamHandler();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", handler);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            OkHttpClient client = new OkHttpClient.Builder()
+                    .addInterceptor(new LoggingInterceptor())
+                    .addInterceptor(new CacheInterceptor().maxSize(1024 * 1024))
+                    .readTimeout(0, TimeUnit.MILLISECONDS)
+                    .build();
+            okhttp3.Request request = new okhttp3.Request.Builder()
+                    .url("http://127.0.0.1:" + server.getAddress().getPort() + "/stream")
+                    .build();
+            //第一行在服务器保持连接时到达
+            Future<String> stream = executor.submit(firstLine(client, ApiStream.streamRequest(request)));
+            assertEquals("{\"index\":1}", stream.get(5, TimeUnit.SECONDS));
+            assertNull("stream marker must not reach the server", handler.streamHeader);
+            //对照：普通请求的日志读取整个响应，连接关闭前拿不到响应
+            Future<String> plain = executor.submit(firstLine(client, request));
+            try {
+                plain.get(500, TimeUnit.MILLISECONDS);
+                fail("plain request should wait for the connection to close");
+            } catch (TimeoutException expected) {
+                handler.release.countDown();
+            }
+            assertEquals("{\"index\":1}", plain.get(5, TimeUnit.SECONDS));
+        } finally {
+            handler.release.countDown();
+            executor.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+}
@@ -0,0 +1,225 @@
+package androidx.api;
+
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 批量请求与逐个请求对比<br/>
+ * 同样个数的GET请求，分别逐个{@link OkApi#get(Context, String, RequestParams, OnRequestListener)}和{@link Batch}发送，
+ * 输出吞吐量（请求/秒）和主线程投递次数。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BatchBenchmarkTest {
+
+    /**
+     * 请求个数
+     */
+    private static final int REQUESTS = 200;
+    /**
+     * 服务器响应耗时，毫秒
+     */
+    private static final int SERVER_DELAY = 2;
+    /**
+     * 主线程每帧时长，毫秒
+     */
+    private static final long FRAME = 16;
+    /**
+     * 超时，毫秒
+     */
+    private static final long TIMEOUT = 60 * 1000;
+
+    private HttpServer server;
+    private Context context;
+    private OkApi api;
+    private String url;
+
+    /**
+     * 延迟后返回请求序号
+     */
+    private static class EchoHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                Thread.sleep(SERVER_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"id\":\"" + exchange.getRequestURI().getQuery() + "\"}").getBytes(Charset.forName("UTF-8"));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            exchange.close();
+        }
+
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new EchoHandler());
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/echo?id=";
+        context = ApplicationProvider.getApplicationContext();
+        Configure.initialize(context);
+        api = new OkApi();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * 按帧处理主线程消息，直到完成或超时
+     *
+     * @param done 是否完成
+     */
+    private void loopUntil(Done done) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!done.isDone()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            shadowOf(Looper.getMainLooper()).idleFor(FRAME, TimeUnit.MILLISECONDS);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * 输出结果
+     *
+     * @param name     名称
+     * @param nanos    耗时，纳秒
+     * @param messages 主线程投递次数
+     */
+    private void report(String name, long nanos, long messages) {
+        double seconds = nanos / 1e9;
+        System.out.println(String.format("%s: %d requests in %.1f ms, %.0f req/s, %d main-looper messages",
+                name, REQUESTS, seconds * 1000, REQUESTS / seconds, messages));
+    }
+
+    /**
+     * 逐个请求
+     *
+     * @return 主线程投递次数
+     */
+    private long naive() throws InterruptedException {
+        final int[] completed = new int[1];
+        final int[] failed = new int[1];
+        long messages = Delivery.main().delivered();
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            api.get(context, url + "naive" + i, new RequestParams(), new OnRequestListener() {
+                @Override
+                public void onRequestSucceed(Request request, Response response) {
+                    completed[0]++;
+                }
+
+                @Override
+                public void onRequestFailed(Request request, Exception exception) {
+                    completed[0]++;
+                    failed[0]++;
+                }
+            });
+        }
+        loopUntil(new Done() {
+            @Override
+            public boolean isDone() {
+                return completed[0] == REQUESTS;
+            }
+        });
+        messages = Delivery.main().delivered() - messages;
+        report("naive", System.nanoTime() - start, messages);
+        assertEquals(0, failed[0]);
+        return messages;
+    }
+
+    /**
+     * 批量请求
+     *
+     * @param stream 是否逐个回调
+     * @return 主线程投递次数
+     */
+    private long batch(boolean stream) throws InterruptedException {
+        final List<?>[] results = new List<?>[1];
+        final int[] items = new int[1];
+        long start = System.nanoTime();
+        Batch batch = api.batch(context).stream(stream);
+        for (int i = 0; i < REQUESTS; i++) {
+            batch.add(OkApi.GET, url + "batch" + i, null);
+        }
+        batch.start(new OnBatchListener() {
+            @Override
+            public void onBatchItem(Batch.Result result) {
+                items[0]++;
+            }
+
+            @Override
+            public void onBatchCompleted(List<Batch.Result> list, Batch.Result failure) {
+                assertNull(failure);
+                results[0] = list;
+            }
+        });
+        loopUntil(new Done() {
+            @Override
+            public boolean isDone() {
+                return results[0] != null;
+            }
+        });
+        report(stream ? "batch(stream)" : "batch", System.nanoTime() - start, batch.messageCount());
+        assertEquals(REQUESTS, results[0].size());
+        for (Object item : results[0]) {
+            assertNull(((Batch.Result) item).exception());
+        }
+        assertEquals(stream ? REQUESTS : 0, items[0]);
+        return batch.messageCount();
+    }
+
+    @Test
+    public void batch_postsFewerMainLooperMessages() throws Exception {
+        //预热连接池和解码器
+        naive();
+        long naive = naive();
+        long batch = batch(false);
+        long stream = batch(true);
+        assertTrue(naive >= REQUESTS);
+        assertEquals(1, batch);
+        assertTrue(stream < naive);
+    }
+
+    /**
+     * 完成条件
+     */
+    private interface Done {
+
+        boolean isDone();
+
+    }
+
+}
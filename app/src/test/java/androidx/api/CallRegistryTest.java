@@ -0,0 +1,166 @@
+package androidx.api;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.*;
+
+/**
+ * 运行中请求索引并发测试<br/>
+ * 多线程同时添加、移除、按标识取消，校验个数和索引不丢失、不残留。
+ */
+public class CallRegistryTest {
+
+    /**
+     * 线程个数
+     */
+    private static final int THREADS = 16;
+    /**
+     * 请求总个数
+     */
+    private static final int CALLS = 100000;
+    /**
+     * 标识个数
+     */
+    private static final int TAGS = 32;
+
+    /**
+     * 创建请求，不执行
+     *
+     * @param client 客户端
+     * @param total  个数
+     * @return
+     */
+    private List<Call> newCalls(OkHttpClient client, int total) {
+        List<Call> calls = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            okhttp3.Request request = new okhttp3.Request.Builder()
+                    .url("http://localhost/calls?id=" + i)
+                    .tag("tag" + (i % TAGS))
+                    .build();
+            calls.add(client.newCall(request));
+        }
+        return calls;
+    }
+
+    /**
+     * 多线程分片执行
+     *
+     * @param calls  请求
+     * @param action 操作
+     */
+    private void parallel(final List<Call> calls, final Action action) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final int slice = calls.size() / THREADS;
+        for (int t = 0; t < THREADS; t++) {
+            final int from = t * slice;
+            final int to = t == THREADS - 1 ? calls.size() : from + slice;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = from; i < to; i++) {
+                            action.run(i, calls.get(i));
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        assertTrue("timed out", done.await(60, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void concurrentAddRemove_sizeMatches() throws Exception {
+        final CallRegistry registry = new CallRegistry();
+        List<Call> calls = newCalls(new OkHttpClient(), CALLS);
+        parallel(calls, new Action() {
+            @Override
+            public void run(int index, Call call) {
+                registry.add(call);
+                //每添加两个移除一个，添加和移除交错进行
+                if (index % 2 == 1) {
+                    registry.remove(call);
+                }
+            }
+        });
+        assertEquals(CALLS / 2, registry.size());
+        assertEquals(CALLS / 2, registry.calls().size());
+        int sum = 0;
+        for (int i = 0; i < TAGS; i++) {
+            sum += registry.size("tag" + i);
+        }
+        assertEquals(CALLS / 2, sum);
+        parallel(calls, new Action() {
+            @Override
+            public void run(int index, Call call) {
+                registry.remove(call);
+            }
+        });
+        assertEquals(0, registry.size());
+        assertTrue(registry.calls().isEmpty());
+        for (int i = 0; i < TAGS; i++) {
+            assertEquals(0, registry.size("tag" + i));
+        }
+    }
+
+    @Test
+    public void concurrentCancel_reachesTaggedCallsOnly() throws Exception {
+        final CallRegistry registry = new CallRegistry();
+        final List<Call> calls = newCalls(new OkHttpClient(), CALLS);
+        parallel(calls, new Action() {
+            @Override
+            public void run(int index, Call call) {
+                registry.add(call);
+                //添加的同时取消tag0，迟到的tag0请求在最后统一取消
+                if (index % 1000 == 0) {
+                    registry.cancel("tag0");
+                }
+            }
+        });
+        assertEquals(CALLS, registry.size());
+        registry.cancel("tag0");
+        for (int i = 0; i < CALLS; i++) {
+            assertEquals(i % TAGS == 0, calls.get(i).isCanceled());
+        }
+        registry.cancelAll();
+        for (Call call : calls) {
+            assertTrue(call.isCanceled());
+        }
+    }
+
+    @Test
+    public void removeUnknown_isIgnored() {
+        CallRegistry registry = new CallRegistry();
+        List<Call> calls = newCalls(new OkHttpClient(), 2);
+        registry.add(calls.get(0));
+        registry.add(calls.get(0));
+        registry.remove(calls.get(1));
+        assertEquals(1, registry.size());
+        registry.remove(calls.get(0));
+        registry.remove(calls.get(0));
+        assertEquals(0, registry.size());
+    }
+
+    /**
+     * 分片操作
+     */
+    private interface Action {
+
+        void run(int index, Call call);
+
+    }
+
+}
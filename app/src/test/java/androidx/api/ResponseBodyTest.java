@@ -0,0 +1,160 @@
+package androidx.api;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.HttpUrl;
+
+import static org.junit.Assert.*;
+
+/**
+ * 投递信封回收池并发测试<br/>
+ * 多个请求线程同时获取、填充信封，多个投递线程校验后回收，模拟并发完成的请求经Handler或线程池投递。
+ */
+public class ResponseBodyTest {
+
+    /**
+     * 请求线程个数
+     */
+    private static final int PRODUCERS = 8;
+    /**
+     * 投递线程个数
+     */
+    private static final int CONSUMERS = 4;
+    /**
+     * 每个请求线程发送的个数
+     */
+    private static final int MESSAGES = 20000;
+
+    @Test
+    public void concurrentObtainRecycle_noCrossTalk() throws Exception {
+        final BlockingQueue<ResponseBody> queue = new LinkedBlockingQueue<>();
+        final AtomicInteger mismatches = new AtomicInteger();
+        final AtomicInteger delivered = new AtomicInteger();
+        final List<Object[]> kept = new CopyOnWriteArrayList<>();
+        final int total = PRODUCERS * MESSAGES;
+        final CountDownLatch done = new CountDownLatch(total);
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        ExecutorService consumers = Executors.newFixedThreadPool(CONSUMERS);
+        for (int c = 0; c < CONSUMERS; c++) {
+            consumers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            ResponseBody body = queue.take();
+                            String id = body.getResponse().body();
+                            Request request = body.getRequest();
+                            Response response = body.getResponse();
+                            if (!id.equals(request.url().queryParameter("id"))
+                                    || !id.equals(String.valueOf(response.code()))
+                                    || !id.equals(((Listener) body.getRequestListener()).id)) {
+                                mismatches.incrementAndGet();
+                            }
+                            if (Integer.parseInt(id) % 1000 == 0) {
+                                kept.add(new Object[]{id, request, response});
+                            }
+                            body.recycle();
+                            delivered.incrementAndGet();
+                            done.countDown();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int offset = p * MESSAGES;
+            producers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < MESSAGES; i++) {
+                        String id = String.valueOf(offset + i);
+                        ResponseBody body = ResponseBody.obtain();
+                        body.getRequest().url(HttpUrl.parse("http://localhost/echo?id=" + id));
+                        body.getResponse().code(offset + i);
+                        body.getResponse().body(id);
+                        body.setOnRequestListener(new Listener(id));
+                        queue.add(body);
+                    }
+                }
+            });
+        }
+        assertTrue("delivery timed out", done.await(60, TimeUnit.SECONDS));
+        producers.shutdownNow();
+        consumers.shutdownNow();
+        assertEquals(0, mismatches.get());
+        assertEquals(total, delivered.get());
+        assertTrue(ResponseBody.poolSize() <= ResponseBody.MAX_POOL_SIZE);
+        //回收信封后，回调过的请求包和响应仍然保持原内容
+        assertFalse(kept.isEmpty());
+        for (Object[] item : kept) {
+            Request request = (Request) item[1];
+            Response response = (Response) item[2];
+            assertEquals(item[0], response.body());
+            assertEquals(item[0], request.url().queryParameter("id"));
+        }
+    }
+
+    @Test
+    public void recycle_keepsDeliveredRequestAndResponse() {
+        ResponseBody body = ResponseBody.obtain();
+        Request request = body.getRequest();
+        Response response = body.getResponse();
+        request.url(HttpUrl.parse("http://localhost/echo?id=1"));
+        response.code(200);
+        response.body("1");
+        body.recycle();
+        assertNull(body.getRequest());
+        assertNull(body.getResponse());
+        assertEquals("1", response.body());
+        assertEquals(200, response.code());
+        assertEquals("1", request.url().queryParameter("id"));
+        ResponseBody next = ResponseBody.obtain();
+        assertNotSame(request, next.getRequest());
+        assertNotSame(response, next.getResponse());
+        next.recycle();
+    }
+
+    @Test
+    public void recycle_twiceIsIgnored() {
+        ResponseBody body = ResponseBody.obtain();
+        body.recycle();
+        int size = ResponseBody.poolSize();
+        body.recycle();
+        assertEquals(size, ResponseBody.poolSize());
+    }
+
+    /**
+     * 携带请求序号的监听
+     */
+    private static class Listener implements OnRequestListener {
+
+        final String id;
+
+        Listener(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void onRequestSucceed(Request request, Response response) {
+
+        }
+
+        @Override
+        public void onRequestFailed(Request request, Exception exception) {
+
+        }
+    }
+
+}
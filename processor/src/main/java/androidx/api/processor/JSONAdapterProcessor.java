@@ -0,0 +1,329 @@
+package androidx.api.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * JSON实体适配器生成<br/>
+ * 为androidx.api.JSONBean注解的实体生成“实体类名_JSONAdapter”（内部类以_连接外部类名），<br/>
+ * 生成代码直接读写字段（private字段使用setXxx方法），运行时由androidx.api.JSONAdapters按类名查找。<br/>
+ * 含泛型占位符字段的实体不生成适配器，继续使用反射解析。
+ */
+public class JSONAdapterProcessor extends AbstractProcessor {
+
+    /**
+     * 实体注解
+     */
+    public static final String ANNOTATION = "androidx.api.JSONBean";
+    /**
+     * 适配器类名后缀
+     */
+    public static final String SUFFIX = "_JSONAdapter";
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "@JSONBean can only be used on classes.");
+                    continue;
+                }
+                generate((TypeElement) element);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 生成适配器
+     *
+     * @param type 实体类
+     */
+    private void generate(TypeElement type) {
+        Elements elements = processingEnv.getElementUtils();
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        if (!isInstantiable(type)) {
+            return;
+        }
+        List<String> statements = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        TypeElement cls = type;
+        while (cls != null && !cls.getQualifiedName().contentEquals("java.lang.Object")) {
+            for (VariableElement field : ElementFilter.fieldsIn(cls.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                String name = field.getSimpleName().toString();
+                if (!names.add(name)) {
+                    continue;
+                }
+                if (field.asType().getKind() == TypeKind.TYPEVAR) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "JSONAdapter skipped, type variable field: " + name, type);
+                    return;
+                }
+                String statement = statement(type, packageName, field, modifiers.contains(Modifier.FINAL));
+                if (statement == null) {
+                    return;
+                }
+                statements.add(statement);
+            }
+            TypeMirror superclass = cls.getSuperclass();
+            cls = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        String binaryName = elements.getBinaryName(type).toString();
+        String simpleName = (packageName.length() == 0 ? binaryName : binaryName.substring(packageName.length() + 1)).replace('$', '_') + SUFFIX;
+        String qualifiedName = packageName.length() == 0 ? simpleName : packageName + "." + simpleName;
+        String beanName = type.getQualifiedName().toString();
+        try {
+            Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter();
+            PrintWriter out = new PrintWriter(writer);
+            if (packageName.length() > 0) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("import androidx.api.JSONAdapter;");
+            out.println("import androidx.api.JSONAdapters;");
+            out.println();
+            out.println("import org.json.JSONObject;");
+            out.println();
+            out.println("/**");
+            out.println(" * " + beanName + " JSON适配器，由JSONAdapterProcessor生成，请勿修改");
+            out.println(" */");
+            out.println("public final class " + simpleName + " implements JSONAdapter<" + beanName + "> {");
+            out.println();
+            out.println("    @Override");
+            out.println("    @SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+            out.println("    public " + beanName + " toObject(JSONObject object) {");
+            out.println("        " + beanName + " bean = new " + beanName + "();");
+            out.println("        Object value;");
+            for (String statement : statements) {
+                out.print(statement);
+            }
+            out.println("        return bean;");
+            out.println("    }");
+            out.println();
+            out.println("}");
+            out.close();
+        } catch (IOException e) {
+            error(type, "JSONAdapter generate failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 实体是否可由生成代码创建：非抽象、静态内部类、非private无参构造函数
+     *
+     * @param type 实体类
+     * @return
+     */
+    private boolean isInstantiable(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT) || modifiers.contains(Modifier.PRIVATE)) {
+            error(type, "@JSONBean class must be non-abstract and non-private.");
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+            error(type, "@JSONBean inner class must be static.");
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            error(type, "@JSONBean class must be top level or static nested.");
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        error(type, "@JSONBean class needs a non-private no-arg constructor.");
+        return false;
+    }
+
+    /**
+     * 字段赋值语句
+     *
+     * @param type        实体类
+     * @param packageName 实体包名
+     * @param field       字段
+     * @param isFinal     是否final
+     * @return
+     */
+    private String statement(TypeElement type, String packageName, VariableElement field, boolean isFinal) {
+        String name = field.getSimpleName().toString();
+        TypeMirror fieldType = field.asType();
+        String target = isFinal ? null : accessible(field, packageName) ? "bean." + name : null;
+        String setter = target == null ? setter(type, packageName, field) : null;
+        if (target == null && setter == null) {
+            if (isFinal) {
+                return "";
+            }
+            error(field, "@JSONBean private field needs a setter: " + name);
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append("        value = object.opt(\"").append(name).append("\");\n");
+        builder.append("        if (!JSONAdapters.isNull(value)) {\n");
+        String primitive = primitive(fieldType.getKind());
+        if (primitive != null && target != null) {
+            builder.append("            ").append(target).append(" = ").append(primitive.replace("$", target)).append(";\n");
+        } else {
+            Types types = processingEnv.getTypeUtils();
+            String erasure = primitive != null ? types.boxedClass(types.getPrimitiveType(fieldType.getKind())).getQualifiedName().toString() : types.erasure(fieldType).toString();
+            builder.append("            Object item = JSONAdapters.read(value, ").append(erasure).append(".class, ").append(parameterType(fieldType)).append(");\n");
+            builder.append("            if (item != null) {\n");
+            if (target != null) {
+                builder.append("                ").append(target).append(" = (").append(erasure).append(") item;\n");
+            } else {
+                builder.append("                bean.").append(setter).append("((").append(erasure).append(") item);\n");
+            }
+            builder.append("            }\n");
+        }
+        builder.append("        }\n");
+        return builder.toString();
+    }
+
+    /**
+     * 基础数据类型取值表达式，$为当前字段值（无法转换时保持不变）
+     *
+     * @param kind 类型
+     * @return
+     */
+    private String primitive(TypeKind kind) {
+        switch (kind) {
+            case INT:
+                return "JSONAdapters.toInt(value, $)";
+            case LONG:
+                return "JSONAdapters.toLong(value, $)";
+            case SHORT:
+                return "JSONAdapters.toShort(value, $)";
+            case BYTE:
+                return "JSONAdapters.toByte(value, $)";
+            case DOUBLE:
+                return "JSONAdapters.toDouble(value, $)";
+            case FLOAT:
+                return "JSONAdapters.toFloat(value, $)";
+            case CHAR:
+                return "JSONAdapters.toChar(value, $)";
+            case BOOLEAN:
+                return "JSONAdapters.toBoolean(value)";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 集合字段泛型参数类
+     *
+     * @param fieldType 字段类型
+     * @return 类字面量，无法确定时为null
+     */
+    private String parameterType(TypeMirror fieldType) {
+        if (fieldType.getKind() != TypeKind.DECLARED) {
+            return "null";
+        }
+        List<? extends TypeMirror> arguments = ((DeclaredType) fieldType).getTypeArguments();
+        if (arguments.isEmpty()) {
+            return "null";
+        }
+        TypeMirror argument = arguments.get(0);
+        if (argument.getKind() == TypeKind.WILDCARD) {
+            argument = ((WildcardType) argument).getExtendsBound();
+        }
+        if (argument == null || argument.getKind() != TypeKind.DECLARED) {
+            return "null";
+        }
+        return processingEnv.getTypeUtils().erasure(argument).toString() + ".class";
+    }
+
+    /**
+     * 字段是否可由生成代码直接访问
+     *
+     * @param field       字段
+     * @param packageName 生成代码包名
+     * @return
+     */
+    private boolean accessible(Element field, String packageName) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        PackageElement element = processingEnv.getElementUtils().getPackageOf(field);
+        return element.getQualifiedName().contentEquals(packageName);
+    }
+
+    /**
+     * 查找字段setXxx方法
+     *
+     * @param type        实体类
+     * @param packageName 生成代码包名
+     * @param field       字段
+     * @return 方法名称，没有时为空
+     */
+    private String setter(TypeElement type, String packageName, VariableElement field) {
+        String name = field.getSimpleName().toString();
+        String setter = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        Types types = processingEnv.getTypeUtils();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!method.getSimpleName().contentEquals(setter) || method.getParameters().size() != 1) {
+                continue;
+            }
+            if (method.getModifiers().contains(Modifier.STATIC) || !accessible(method, packageName)) {
+                continue;
+            }
+            if (types.isSameType(types.erasure(method.getParameters().get(0).asType()), types.erasure(field.asType()))) {
+                return setter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 编译错误
+     *
+     * @param element 元素
+     * @param message 信息
+     */
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}